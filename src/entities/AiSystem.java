@@ -0,0 +1,137 @@
+package entities;
+
+import game_engine.Attributes;
+import levels.Tile;
+
+/**
+ * Runs the zombie decisions that are due, puts zombies to sleep and wakes
+ * them up, and picks the level of detail each awake zombie is updated at on
+ * this tick.
+ */
+public class AiSystem implements GameSystem
+{
+  // how often zombies are checked for falling asleep or waking up
+  private static final int DORMANCY_CHECK_TICKS = (int) Attributes.Frame_Rate;
+
+  private final EntityManager entityManager;
+  private int playerRegion = -1;
+
+  /**
+   * @param entityManager
+   *          The entity manager whose zombies this system drives.
+   */
+  public AiSystem(EntityManager entityManager)
+  {
+    this.entityManager = entityManager;
+  }
+
+  @Override
+  public void update(int tick)
+  {
+    EntityWorld world = entityManager.world;
+
+    entityManager.updateDecisions(tick);
+    updateDormancy(world, tick);
+
+    for (Zombie zombie : entityManager.zombies)
+    {
+      if (world.dormant[zombie.id]) continue;
+      world.aiDetail[zombie.id] = getAiDetail(world, zombie);
+    }
+  }
+
+  /**
+   * Forgets the region the player was in, so that the zombies of the
+   * player's region are woken on the next tick. Called when a new game
+   * starts.
+   */
+  public void reset()
+  {
+    playerRegion = -1;
+  }
+
+  /**
+   * Puts zombies to sleep and wakes them up. When the player walks into a new
+   * region every zombie sleeping in it wakes up. Once a second, zombies that
+   * are in another region than the player and outside of the activation
+   * radius fall asleep, and sleeping zombies that the player came close to
+   * wake up. Zombies that are chasing or have fought the player stay awake.
+   */
+  private void updateDormancy(EntityWorld world, int tick)
+  {
+    int playerId = entityManager.player.id;
+    double playerX = world.x[playerId];
+    double playerZ = world.z[playerId];
+
+    int region = getRegionAt(playerX, playerZ);
+    if (region != playerRegion)
+    {
+      playerRegion = region;
+      for (Zombie zombie : entityManager.zombies)
+      {
+        if (getRegionAt(world.x[zombie.id], world.z[zombie.id]) == region)
+        {
+          entityManager.wakeZombie(zombie);
+        }
+      }
+    }
+    if (tick % DORMANCY_CHECK_TICKS != 0) return;
+
+    double radiusSquared = Attributes.Zombie_Activation_Radius * Attributes.Zombie_Activation_Radius;
+    for (Zombie zombie : entityManager.zombies)
+    {
+      double xDist = playerX - world.x[zombie.id];
+      double zDist = playerZ - world.z[zombie.id];
+      boolean active = xDist * xDist + zDist * zDist < radiusSquared
+          || getRegionAt(world.x[zombie.id], world.z[zombie.id]) == playerRegion;
+      if (active)
+      {
+        entityManager.wakeZombie(zombie);
+      }
+      else if (!zombie.goingAfterPlayer.get() && !zombie.masterZombieChasePlayer.get()
+          && !entityManager.interactingZombies.contains(zombie))
+      {
+        world.dormant[zombie.id] = true;
+      }
+    }
+  }
+
+  /**
+   * @return The region (1-4) of the tile at the given location.
+   */
+  private int getRegionAt(double x, double z)
+  {
+    Tile[][] gameBoard = entityManager.zombieHouse.gameBoard;
+    int col = Math.min(Math.max((int) z, 0), gameBoard.length - 1);
+    int row = Math.min(Math.max((int) x, 0), gameBoard[0].length - 1);
+    return gameBoard[col][row].getRegion();
+  }
+
+  /**
+   * Picks how much AI work a zombie gets this tick from its straight line
+   * distance to the player. A master zombie that is chasing the player keeps
+   * looking for a path no matter how far away it is.
+   *
+   * @param zombie
+   *        The zombie that is about to be updated.
+   * @return The level of detail to update the zombie at.
+   */
+  private Zombie.AiDetail getAiDetail(EntityWorld world, Zombie zombie)
+  {
+    int playerId = entityManager.player.id;
+    double xDist = world.x[playerId] - world.x[zombie.id];
+    double zDist = world.z[playerId] - world.z[zombie.id];
+    double distanceSquared = xDist * xDist + zDist * zDist;
+
+    if (distanceSquared < Attributes.AI_Near_Distance * Attributes.AI_Near_Distance)
+    {
+      return Zombie.AiDetail.NEAR;
+    }
+    if (distanceSquared < Attributes.AI_Far_Distance * Attributes.AI_Far_Distance
+        || zombie.masterZombieChasePlayer.get())
+    {
+      return Zombie.AiDetail.MID;
+    }
+    return Zombie.AiDetail.FAR;
+  }
+}
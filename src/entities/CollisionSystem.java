@@ -0,0 +1,37 @@
+package entities;
+
+import javafx.scene.shape.Box;
+
+/**
+ * Checks the collisions that end the game. Walls and other creatures are
+ * still checked by the creatures while they move, since they need the answer
+ * before they take a step.
+ */
+public class CollisionSystem implements GameSystem
+{
+  private final EntityManager entityManager;
+
+  /**
+   * @param entityManager
+   *          The entity manager whose player this system checks.
+   */
+  public CollisionSystem(EntityManager entityManager)
+  {
+    this.entityManager = entityManager;
+  }
+
+  @Override
+  public void update(int tick)
+  {
+    Player player = entityManager.player;
+
+    //checking for exit collision
+    for (Box box : entityManager.zombieHouse.exits)
+    {
+      if (box.getBoundsInParent().intersects(player.boundingCircle.getBoundsInParent()))
+      {
+        player.foundExit.set(true);
+      }
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package entities;
+
+/**
+ * Lets the zombies near the player attack. Each zombie's attack cooldown is
+ * kept in its Health component.
+ */
+public class CombatSystem implements GameSystem
+{
+  // ticks a zombie waits between two attacks
+  private static final int ATTACK_COOLDOWN_TICKS = 40;
+
+  private final EntityManager entityManager;
+
+  /**
+   * @param entityManager
+   *          The entity manager whose zombies this system drives.
+   */
+  public CombatSystem(EntityManager entityManager)
+  {
+    this.entityManager = entityManager;
+  }
+
+  @Override
+  public void update(int tick)
+  {
+    EntityWorld world = entityManager.world;
+
+    for (Zombie zombie : entityManager.zombies)
+    {
+      int id = zombie.id;
+      if (world.dormant[id] || world.aiDetail[id] != Zombie.AiDetail.NEAR) continue;
+
+      //@author Nick: This calls the entity manager to check if there is a player
+      //  in it's hitbox. If so, the entitymanager distributes damage to the player.
+      int cooldown = world.attackCooldown[id];
+      if (cooldown > ATTACK_COOLDOWN_TICKS)
+      {
+        cooldown = 0;
+      }
+      if (cooldown > 0)
+      {
+        cooldown++;
+      }
+      if (cooldown == 0)
+      {
+        if (entityManager.zombieAttack(zombie))
+        {
+          //track all zombies who deal damage to player so they can be added to pastSelves when game restarts
+          entityManager.interactingZombies.add(zombie);
+        }
+        cooldown = 1;
+      }
+      world.attackCooldown[id] = cooldown;
+    }
+  }
+}
@@ -0,0 +1,351 @@
+package entities;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A Timeline that is compressed as it is recorded. Creatures move a short
+ * way each turn and only turn when they make a decision, so:
+ * <ul>
+ * <li>every KEYFRAME_TURNS turns the position is stored as floats, a
+ * keyframe;</li>
+ * <li>on the turns in between only the move since the last turn is stored,
+ * as one signed byte per axis in steps of 1/POSITION_STEPS of a tile. A move
+ * that does not fit in a byte, like a zombie breaking free, starts a new
+ * keyframe instead;</li>
+ * <li>the angle is stored once per run of turns that it stays the same.</li>
+ * </ul>
+ * That is about two bytes per turn. The moves are quantized against the
+ * position decoded so far, so the rounding error never builds up past half a
+ * step.
+ *
+ * Turns are meant to be read in order, as a past self is replayed: reading
+ * the turn after the last one read is constant time. Any other turn is
+ * decoded from the keyframe before it.
+ *
+ * The same encoding is what a replay file stores, see encode(), and a
+ * MappedTimeline decodes it from there.
+ */
+public class CompressedTimeline implements Timeline
+{
+  private static final int KEYFRAME_TURNS = 64;
+  static final double POSITION_STEPS = 512;
+
+  private static final int CHUNK_BITS = 10;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  // the move of each turn, in steps from the turn before; 0 on keyframes
+  private byte[][] dx = new byte[1][];
+  private byte[][] dz = new byte[1][];
+  private int size = 0;
+  private boolean ended = false;
+
+  // keyframes, in turn order
+  private int[] keyTurns = new int[4];
+  private float[] keyX = new float[4];
+  private float[] keyZ = new float[4];
+  private int keyCount = 0;
+
+  // runs of the same angle, in turn order
+  private int[] runTurns = new int[4];
+  private float[] runActions = new float[4];
+  private int runCount = 0;
+
+  // position of the last turn appended, in steps from its keyframe
+  private int lastStepsX;
+  private int lastStepsZ;
+
+  // the last turn decoded, so reading turns in order is constant time
+  private int readTurn = -1;
+  private int readKey;
+  private int readStepsX;
+  private int readStepsZ;
+  private int readRun;
+
+  @Override
+  public void append(double x, double z, double action)
+  {
+    if (ended) return;
+    int chunk = size >>> CHUNK_BITS;
+    int index = size & CHUNK_MASK;
+    if (index == 0)
+    {
+      addChunk(chunk);
+    }
+
+    boolean keyframe = keyCount == 0 || size - keyTurns[keyCount - 1] >= KEYFRAME_TURNS;
+    int stepsX = 0;
+    int stepsZ = 0;
+    if (!keyframe)
+    {
+      stepsX = (int) Math.round((x - keyX[keyCount - 1]) * POSITION_STEPS);
+      stepsZ = (int) Math.round((z - keyZ[keyCount - 1]) * POSITION_STEPS);
+      keyframe = !fitsInByte(stepsX - lastStepsX) || !fitsInByte(stepsZ - lastStepsZ);
+    }
+    if (keyframe)
+    {
+      addKeyframe(x, z);
+      stepsX = 0;
+      stepsZ = 0;
+    }
+    dx[chunk][index] = (byte) (stepsX - lastStepsX);
+    dz[chunk][index] = (byte) (stepsZ - lastStepsZ);
+    lastStepsX = stepsX;
+    lastStepsZ = stepsZ;
+
+    float angle = (float) action;
+    if (runCount == 0 || runActions[runCount - 1] != angle)
+    {
+      addRun(angle);
+    }
+    size++;
+  }
+
+  @Override
+  public void hold(int turns)
+  {
+    if (ended || size == 0) return;
+    // standing still is a move of 0 and the same angle, which is what new
+    // chunks are filled with, so only the keyframes have to be written
+    double x = keyX[keyCount - 1] + lastStepsX / POSITION_STEPS;
+    double z = keyZ[keyCount - 1] + lastStepsZ / POSITION_STEPS;
+    int end = size + turns;
+    while (size < end)
+    {
+      int chunk = size >>> CHUNK_BITS;
+      if ((size & CHUNK_MASK) == 0)
+      {
+        addChunk(chunk);
+      }
+      if (size - keyTurns[keyCount - 1] >= KEYFRAME_TURNS)
+      {
+        addKeyframe(x, z);
+      }
+      size = Math.min(end, Math.min(keyTurns[keyCount - 1] + KEYFRAME_TURNS, (chunk + 1) << CHUNK_BITS));
+    }
+  }
+
+  @Override
+  public void end()
+  {
+    ended = true;
+  }
+
+  @Override
+  public boolean isEnded()
+  {
+    return ended;
+  }
+
+  @Override
+  public int size()
+  {
+    return size;
+  }
+
+  @Override
+  public double getX(int turn)
+  {
+    seek(turn);
+    return keyX[readKey] + readStepsX / POSITION_STEPS;
+  }
+
+  @Override
+  public double getZ(int turn)
+  {
+    seek(turn);
+    return keyZ[readKey] + readStepsZ / POSITION_STEPS;
+  }
+
+  @Override
+  public boolean hasAction(int turn)
+  {
+    return turn < size || (ended && turn == size);
+  }
+
+  @Override
+  public double getAction(int turn)
+  {
+    if (turn == size) return DEAD;
+    seek(turn);
+    return runActions[readRun];
+  }
+
+  /**
+   * @param timeline
+   *          Any timeline.
+   * @return The timeline itself if it is compressed, or else a compressed
+   *         copy of it, ended if it is.
+   */
+  static CompressedTimeline of(Timeline timeline)
+  {
+    if (timeline instanceof CompressedTimeline) return (CompressedTimeline) timeline;
+    CompressedTimeline compressed = new CompressedTimeline();
+    for (int turn = 0; turn < timeline.size(); turn++)
+    {
+      compressed.append(timeline.getX(turn), timeline.getZ(turn), timeline.getAction(turn));
+    }
+    if (timeline.isEnded())
+    {
+      compressed.end();
+    }
+    return compressed;
+  }
+
+  /**
+   * @return The number of keyframes.
+   */
+  int getKeyframeCount()
+  {
+    return keyCount;
+  }
+
+  /**
+   * @return The number of runs of the same angle.
+   */
+  int getRunCount()
+  {
+    return runCount;
+  }
+
+  /**
+   * @return The number of bytes encode() writes.
+   */
+  int encodedBytes()
+  {
+    return keyCount * (Integer.BYTES + 2 * Float.BYTES) + runCount * (Integer.BYTES + Float.BYTES) + 2 * size;
+  }
+
+  /**
+   * Writes the timeline as it is kept, column after column:
+   *
+   * <pre>
+   * int[keyCount] keyframe turns, float[keyCount] x, float[keyCount] z,
+   * int[runCount] run turns, float[runCount] angles,
+   * byte[size] moves along x, byte[size] moves along z
+   * </pre>
+   *
+   * @param out
+   *          The buffer to write to, which must have encodedBytes() left.
+   */
+  void encode(ByteBuffer out)
+  {
+    out.asIntBuffer().put(keyTurns, 0, keyCount);
+    out.position(out.position() + keyCount * Integer.BYTES);
+    putFloats(out, keyX, keyCount);
+    putFloats(out, keyZ, keyCount);
+    out.asIntBuffer().put(runTurns, 0, runCount);
+    out.position(out.position() + runCount * Integer.BYTES);
+    putFloats(out, runActions, runCount);
+    putMoves(out, dx);
+    putMoves(out, dz);
+  }
+
+  private static void putFloats(ByteBuffer out, float[] values, int count)
+  {
+    out.asFloatBuffer().put(values, 0, count);
+    out.position(out.position() + count * Float.BYTES);
+  }
+
+  private void putMoves(ByteBuffer out, byte[][] moves)
+  {
+    for (int start = 0; start < size; start += CHUNK_SIZE)
+    {
+      out.put(moves[start >>> CHUNK_BITS], 0, Math.min(CHUNK_SIZE, size - start));
+    }
+  }
+
+  /**
+   * Decodes the given turn into the read cursor.
+   */
+  private void seek(int turn)
+  {
+    if (turn == readTurn) return;
+    if (turn != readTurn + 1 || readTurn < 0)
+    {
+      // start over from the keyframe and the angle run the turn is in
+      readKey = lastAtOrBefore(keyTurns, keyCount, turn);
+      readRun = lastAtOrBefore(runTurns, runCount, turn);
+      readTurn = keyTurns[readKey];
+      readStepsX = 0;
+      readStepsZ = 0;
+    }
+    else
+    {
+      readTurn++;
+      if (readKey + 1 < keyCount && keyTurns[readKey + 1] == readTurn)
+      {
+        readKey++;
+        readStepsX = 0;
+        readStepsZ = 0;
+      }
+      if (readRun + 1 < runCount && runTurns[readRun + 1] == readTurn)
+      {
+        readRun++;
+      }
+      readStepsX += dx[readTurn >>> CHUNK_BITS][readTurn & CHUNK_MASK];
+      readStepsZ += dz[readTurn >>> CHUNK_BITS][readTurn & CHUNK_MASK];
+    }
+    while (readTurn < turn)
+    {
+      readTurn++;
+      readStepsX += dx[readTurn >>> CHUNK_BITS][readTurn & CHUNK_MASK];
+      readStepsZ += dz[readTurn >>> CHUNK_BITS][readTurn & CHUNK_MASK];
+    }
+  }
+
+  /**
+   * @return The index of the last entry of the sorted turns that is at or
+   *         before the given turn.
+   */
+  private static int lastAtOrBefore(int[] turns, int count, int turn)
+  {
+    int index = Arrays.binarySearch(turns, 0, count, turn);
+    return index >= 0 ? index : -index - 2;
+  }
+
+  private static boolean fitsInByte(int steps)
+  {
+    return steps >= Byte.MIN_VALUE && steps <= Byte.MAX_VALUE;
+  }
+
+  private void addKeyframe(double x, double z)
+  {
+    if (keyCount == keyTurns.length)
+    {
+      keyTurns = Arrays.copyOf(keyTurns, keyCount * 2);
+      keyX = Arrays.copyOf(keyX, keyCount * 2);
+      keyZ = Arrays.copyOf(keyZ, keyCount * 2);
+    }
+    keyTurns[keyCount] = size;
+    keyX[keyCount] = (float) x;
+    keyZ[keyCount] = (float) z;
+    keyCount++;
+    lastStepsX = 0;
+    lastStepsZ = 0;
+  }
+
+  private void addRun(float action)
+  {
+    if (runCount == runTurns.length)
+    {
+      runTurns = Arrays.copyOf(runTurns, runCount * 2);
+      runActions = Arrays.copyOf(runActions, runCount * 2);
+    }
+    runTurns[runCount] = size;
+    runActions[runCount] = action;
+    runCount++;
+  }
+
+  private void addChunk(int chunk)
+  {
+    if (chunk == dx.length)
+    {
+      dx = Arrays.copyOf(dx, chunk * 2);
+      dz = Arrays.copyOf(dz, chunk * 2);
+    }
+    dx[chunk] = new byte[CHUNK_SIZE];
+    dz[chunk] = new byte[CHUNK_SIZE];
+  }
+}
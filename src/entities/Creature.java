@@ -8,8 +8,10 @@ package entities;
  */
 public abstract class Creature extends Entity
 {
-  //@Sarah: adding HP element to all humans and zombies
-  double hitPoints;
+  // The id of this creature in the entity world. Its hit points, position
+  // and timeline live in the world's component arrays under this id.
+  public int id = -1;
+  protected EntityWorld world;
   protected double stepDistance;
   public double velocity;
   public double angle;
@@ -32,6 +34,42 @@ public abstract class Creature extends Entity
       stepSound();
     }
   }
+  /**
+   * @return The hit points of the creature, from its Health component.
+   */
+  public double getHitPoints()
+  {
+    return world.hitPoints[id];
+  }
+
+  /**
+   * @param hitPoints
+   *          The new hit points of the creature.
+   */
+  public void setHitPoints(double hitPoints)
+  {
+    world.hitPoints[id] = hitPoints;
+  }
+
+  /**
+   * Takes damage off of the creature's hit points.
+   *
+   * @param damage
+   *          amount of damage done to the creature
+   */
+  public void getHit(int damage)
+  {
+    world.hitPoints[id] -= damage;
+  }
+
+  /**
+   * @return The timeline that the creature's turns are logged to.
+   */
+  public TimelineRecorder getTimeline()
+  {
+    return world.timeline[id];
+  }
+
   /**
    * Plays sound effects for player and zombies.
    */
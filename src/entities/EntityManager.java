@@ -1,20 +1,22 @@
 
 package entities;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
+import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import game_engine.Attributes;
+import game_engine.GameRandom;
 import game_engine.Scenes;
 import game_engine.ZombieHouse3d;
 import gui.Main;
+import javafx.scene.Group;
 import javafx.scene.control.Label;
 import javafx.scene.layout.HBox;
-import javafx.scene.paint.Color;
-import javafx.scene.paint.PhongMaterial;
 import javafx.scene.shape.Box;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Shape3D;
@@ -40,6 +42,10 @@ import utilities.ZombieBoardRenderer;
  * his space key, or the left-mouse, the entitymanager checks for zombies to hit. And
  * it checks each zombie in the tick to see if it's in range of a player.
  *
+ * The per tick state of the creatures is kept in the EntityWorld, and the tick runs
+ * the systems over it in order: AI, movement, collision, combat, replay, recording
+ * and finally syncing the scene graph.
+ *
  */
 public class EntityManager
 {
@@ -47,23 +53,67 @@ public class EntityManager
   public ArrayList<Zombie> zombies;
   public ArrayList<PastSelf> pastSelves = new ArrayList<>();
   public ArrayList<PastSelf> tempPastZombies = new ArrayList<>();
-  public Set<Zombie> interactingZombies = new HashSet<>();
+  // which turn the past selves replay
+  public final ReplayController replay = new ReplayController(this);
+  // null unless the past selves of this game are being written to a file
+  private ReplayFile.Writer replayWriter;
+  // null unless the inputs of this game are being logged
+  private InputLog inputRecording;
+  // null unless this game is played from a log instead of the input handlers
+  private InputLog inputPlayback;
+  // in the order they attacked, so a game plays out the same every time
+  public Set<Zombie> interactingZombies = new LinkedHashSet<>();
+  // the components of the player, the zombies and the past selves
+  public EntityWorld world = new EntityWorld();
+  // things that happened in the simulation, handed out after every system
+  public SimulationEvents events = new SimulationEvents();
+  // the state of the world after each tick, for the renderer
+  public final TripleBuffer<FrameSnapshot> snapshots =
+      new TripleBuffer<>(new FrameSnapshot(), new FrameSnapshot(), new FrameSnapshot());
+  // player actions from the input handlers, run at the start of the next tick
+  private final ConcurrentLinkedQueue<Runnable> commands = new ConcurrentLinkedQueue<>();
+  // set once the player died or found the exit, nothing is simulated after that
+  private volatile boolean gameOver = false;
   int turnCounter = 0;
   private int timekeeper = 0;
+  // how long the systems of the last tick took, for the frame governor
+  private volatile long lastTickNanos = 0;
+  // how often the animations are stepped and the far zombies are updated,
+  // in ticks; raised by the frame governor when the game runs slow
+  public volatile int animationInterval = 1;
+  public volatile int farZombieStride = Zombie.AiDetail.FAR.stride;
   public SoundManager soundManager;
   public ZombieHouse3d zombieHouse;
   public Scenes scenes;
   public Main main;
   public AtomicBoolean gameIsRunning = new AtomicBoolean(true);
   Zombie masterZombie;
-  
-  private MasterZombieDecision masterDecision;
-  private ZombieDecision zombieDecision;
-  private int playerLives = 3;
-  private int region1Counter = 0;
-  private int region2Counter = 0;
-  private int region3Counter = 0;
-  private int region4Counter = 0;
+
+  // Decision rates of the zombies, in ticks. These used to be timed by two
+  // sleeping threads; counting ticks instead keeps the AI choices the same
+  // on every run with the same game seed.
+  private static final int ZOMBIE_DECISION_TICKS = (int) (2 * Attributes.Frame_Rate);
+  private static final int MASTER_DECISION_TICKS = (int) (.5 * Attributes.Frame_Rate);
+  // how often the time spent in each system is printed, if profiling is on
+  private static final int PROFILE_REPORT_TICKS = (int) (10 * Attributes.Frame_Rate);
+
+  private final AiSystem aiSystem = new AiSystem(this);
+  private final ReplaySystem replaySystem = new ReplaySystem(this);
+  private final RenderSyncSystem renderSyncSystem = new RenderSyncSystem(this);
+  // in the order that they run every tick
+  private final GameSystem[] systems = {
+      aiSystem,
+      new MovementSystem(this),
+      new CollisionSystem(this),
+      new CombatSystem(this),
+      replaySystem,
+      new RecordSystem(this),
+      renderSyncSystem
+  };
+  private final long[] systemNanos = new long[systems.length];
+
+  private static final int STARTING_LIVES = 3;
+  private int playerLives = STARTING_LIVES;
 
   // The number of wall tiles on the map. Used to check for collisions.
   public int numTiles = 0;
@@ -86,9 +136,32 @@ public class EntityManager
     this.scenes = scenes;
     this.main = main;
     zombies = new ArrayList<>();
-    zombieDecision = new ZombieDecision();
-    zombieDecision.setDaemon(true);
-    zombieDecision.start();
+
+    events.subscribe(SimulationEvents.Type.PLAYER_DETECTED, (type, source) ->
+    {
+      // When a zombie detects the player, the master zombie does too.
+      if (source != masterZombie) startMasterZombie();
+    });
+    events.subscribe(SimulationEvents.Type.ZOMBIE_KILLED, (type, source) ->
+    {
+      if (source == masterZombie) masterZombie = null;
+    });
+    events.subscribe(SimulationEvents.Type.PLAYER_HIT, (type, source) ->
+    {
+      soundManager.playSoundClip(Sound.grunt);
+    });
+    events.subscribe(SimulationEvents.Type.PAST_SELF_EXPIRED, (type, source) ->
+    {
+      PastSelf pastSelf = (PastSelf) source;
+      // a past zombie that was still alive when its world ended breaks free
+      if (pastSelf.isZombie() && !pastSelf.getTimeline().isEnded())
+      {
+        freeZombie(pastSelf);
+        world.visible[pastSelf.id] = false;
+        pastSelf.getBoundingCircle().setTranslateX(0);
+        pastSelf.getBoundingCircle().setTranslateZ(0);
+      }
+    });
   }
 
 
@@ -169,7 +242,7 @@ public class EntityManager
     if(distanceFromPlayer(zombie) < .65)
     {
       player.getHit(10);
-      soundManager.playSoundClip(Sound.grunt);
+      events.publish(SimulationEvents.Type.PLAYER_HIT, player);
       if(player.getHitPoints() <= 0)
       {
         player.setIsDead();
@@ -208,24 +281,20 @@ public class EntityManager
         if (pastSelf.isZombie())
         {
           //bifurcate the zombie !
-          Zombie bifurcatedZombie = new Zombie(null, 0, 0,
-                  pastSelf.getBoundingCircle().getTranslateX(), pastSelf.getBoundingCircle().getTranslateZ(), this);
-          bifurcatedZombie.create3DZombie(Tile.tileSize);
-          zombieHouse.meshZombie(bifurcatedZombie);
-          initializeZombiePast(bifurcatedZombie);
-          //begin life as a zombie!
-          bifurcatedZombie.getWalkBehaviorsX().add(turnCounter, pastSelf.getBoundingCircle().getTranslateX());
-          bifurcatedZombie.getWalkBehaviorsZ().add(turnCounter, pastSelf.getBoundingCircle().getTranslateZ());
-          bifurcatedZombie.getActionBehaviors().add(turnCounter, 0.0);
-          zombies.add(bifurcatedZombie);
+          Zombie bifurcatedZombie = spawnZombieAt(pastSelf.getBoundingCircle().getTranslateX(),
+                  pastSelf.getBoundingCircle().getTranslateZ());
           interactingZombies.add(bifurcatedZombie);    //TODO this is creating TWO zombies
         }
       }
     }
+    wakeZombiesNear(player.xPos, player.zPos, Attributes.Player_Noise_Radius);
     for(Zombie zombie : deleteList)
     {
       zombies.remove(zombie);
-      zombieHouse.root.getChildren().removeAll(zombie.zombieMeshes);
+      world.despawn(zombie.id);
+      Group zombieMeshes = zombie.zombieMeshes;
+      Box healthBar = zombie.getHealthBar();
+      zombieHouse.runOnRender(() -> zombieHouse.root.getChildren().removeAll(zombieMeshes, healthBar));
     }
   }
 
@@ -315,13 +384,15 @@ public class EntityManager
    */
   private void hitZombie(ArrayList<Zombie> deleteList, Zombie zombie) {
     zombie.getHit(10);
-    zombie.updateHealthBar();
     //soundManager.playSoundClip(Sound.sword_hit);
     if(zombie.getHitPoints() <= 0)
     {
       deleteList.add(zombie);
-      zombie.getActionBehaviors().add(zombie.getTurnCounter(), -1.0); //mark zombie as dead at this point in this timeline
-      tempPastZombies.add(new PastSelf(zombie.getWalkBehaviorsX(), zombie.getWalkBehaviorsZ(), zombie.getActionBehaviors(), true, zombie.getTurnCounter()));
+      TimelineRecorder timeline = zombie.getTimeline();
+      int turnOfDeath = timeline.getTurn();
+      timeline.markDead(); //mark zombie as dead at this point in this timeline
+      tempPastZombies.add(new PastSelf(timeline, true, turnOfDeath));
+      events.publish(SimulationEvents.Type.ZOMBIE_KILLED, zombie);
       interactingZombies.remove(zombie);
       zombieHouse.gameBoard[zombie.col][zombie.row].hasZombie = false;
     }
@@ -336,9 +407,11 @@ public class EntityManager
    */
   public void playerPush()
   {
+    wakeZombiesNear(player.xPos, player.zPos, Attributes.Player_Noise_Radius);
     for(Zombie zombie: zombies)
     {
-      if (distanceFromPlayer(zombie) < .6 && !player.isPushing()) //&& isHit(player.boundingCircle, zombie))
+      // the keyboard handler only sends a push when the last one is done
+      if (distanceFromPlayer(zombie) < .6) //&& isHit(player.boundingCircle, zombie))
       {
         //soundManager.playSoundClip(Sound.push);
         zombie.setPushed();
@@ -356,12 +429,54 @@ public class EntityManager
    */
   public double distanceFromPlayer(Zombie zombie)
   {
-    double xDist = player.xPos - zombie.xPos;
-    double zDist = player.zPos - zombie.zPos;
+    double xDist = world.x[player.id] - world.x[zombie.id];
+    double zDist = world.z[player.id] - world.z[zombie.id];
 
     return Math.sqrt(xDist * xDist + zDist * zDist);
   }
 
+  /**
+   * Wakes up a sleeping zombie. The turns it slept through are logged in its
+   * timeline as standing still, in one step, so it stays in step with the
+   * game.
+   *
+   * @param zombie
+   *        The zombie to wake up. Nothing happens if it is already awake.
+   */
+  public void wakeZombie(Zombie zombie)
+  {
+    if (world.dormant[zombie.id])
+    {
+      world.dormant[zombie.id] = false;
+      // it stood still while it slept, so it moves from this tick on
+      world.lastUpdate[zombie.id] = timekeeper - 1;
+      zombie.getTimeline().catchUp(turnCounter);
+    }
+  }
+
+  /**
+   * Wakes up every sleeping zombie that can hear a noise.
+   *
+   * @param x
+   *        x coordinate of the noise
+   * @param z
+   *        z coordinate of the noise
+   * @param radius
+   *        How far the noise carries.
+   */
+  public void wakeZombiesNear(double x, double z, double radius)
+  {
+    for (Zombie zombie : zombies)
+    {
+      double xDist = x - world.x[zombie.id];
+      double zDist = z - world.z[zombie.id];
+      if (xDist * xDist + zDist * zDist < radius * radius)
+      {
+        wakeZombie(zombie);
+      }
+    }
+  }
+
   /**
    * calculate the sound balance based on the player angle and
    * the zombie position
@@ -388,34 +503,16 @@ public class EntityManager
    * Creates list of all of the zombies that will spawn
    * on the board.
    *
-   * @Nick This now loops through all of the tiles repeatedly until the minimum number of zombies has been
-   * created. Since this is how it was handled in the past verison of the game, except during the tiles' creation
-   * the distribution should be the same.
+   * The spawn tiles are drawn by a ZombieSpawner on the first life; later
+   * lives reuse the tiles of the same board.
    */
   public void createZombies(Tile[][] gameBoard, int zHeight, int xWidth)
   {
-    int zombieCounter = 0;
-    while(zombieCounter <= Attributes.Min_Zombies && playerLives == 3)
+    if(playerLives == STARTING_LIVES)
     {
-      for(int col = 0; col < zHeight; col++)
-      {
-        for(int row = 0; row < xWidth; row++)
-        {
-          if(gameBoard[col][row].spawnChance() && !gameBoard[col][row].hasZombie)
-          {
-            int tileRegion = gameBoard[col][row].getRegion();
-            if(getRegionCounter(tileRegion) <= Attributes.Max_Zombies/4)
-            {
-              gameBoard[col][row].hasZombie = true;
-              zombieCounter++;
-              incrementRegionCounter(tileRegion);
-            }
-          }
-        }
-      }
+      new ZombieSpawner(gameBoard).spawn();
     }
     int counter = 0;
-    int randomZombieIndex = (int)(zombies.size()*Math.random());
 
     for (int col = 0; col < zHeight; col++)
     {
@@ -435,20 +532,12 @@ public class EntityManager
       if (counter == Attributes.Max_Zombies)
         break;
     }
-    int zombieListCounter = 0;
-
-    for (int i = 0; i < zombies.size(); i++)
+    if (!zombies.isEmpty())
     {
-      if (zombieListCounter == randomZombieIndex)
-      {
-        zombies.get(i).isMasterZombie = true;
-        masterZombie=zombies.get(i);
-        masterZombie.hitPoints = 30.0;
-        masterDecision=new MasterZombieDecision();
-        masterDecision.setDaemon(true);
-        masterDecision.start();
-      }
-      zombieListCounter++;
+      int randomZombieIndex = GameRandom.stream(GameRandom.SPAWN).nextInt(zombies.size());
+      masterZombie = zombies.get(randomZombieIndex);
+      masterZombie.isMasterZombie = true;
+      masterZombie.setHitPoints(30.0);
     }
 
     for (Zombie zombie: zombies)
@@ -459,170 +548,438 @@ public class EntityManager
 
   /**
    * When a zombie detects the player, the master zombie also detects the player
-   * and goes after the player.
+   * and goes after the player. The zombies sleeping around the master zombie
+   * wake up with it and follow it out.
    */
   public void startMasterZombie()
   {
-    for (Zombie zombie : zombies)
-    {
-      if (zombie.isMasterZombie)
-      {
-        zombie.masterZombieChasePlayer.set(true);
-      }
-    }
+    if (masterZombie == null || masterZombie.masterZombieChasePlayer.get()) return;
+    masterZombie.masterZombieChasePlayer.set(true);
+    wakeZombie(masterZombie);
+    wakeZombiesNear(world.x[masterZombie.id], world.z[masterZombie.id], Attributes.Zombie_Activation_Radius);
   }
 
   /**
-   * This Method updates all the values of all entities
+   * This Method updates all the values of all entities by running each system
+   * once, then ends the game if the player died or found the exit.
    * @author: Jeff, Ben, Atle and Sarah Salmonson
    */
   public void tick(){
+    long tickStart = System.nanoTime();
     ++timekeeper;
-
-    player.tick();
-    scenes.displayNewHP((int)player.getHitPoints());
-    //fog the tiles as a function of distance from edge of far clip
-    fadeToBlack(zombieHouse.getWalls());
-    fadeToBlack(zombieHouse.getNotWalls());
-
-    for (Zombie zombie: zombies)
+    runCommands();
+    if (inputPlayback != null)
     {
-      zombie.tick();
-      if(timekeeper%2 == 0) zombie.nextMesh();
-      if (zombie.goingAfterPlayer.get()
-          && !zombie.isMasterZombie)
-      {
-        startMasterZombie();
-      }
+      inputPlayback.playBack(getLife(), turnCounter, this);
     }
-    //@Sarah call replayCreature method for all past players and zombies
-    for(PastSelf pastSelf : pastSelves)
+    // events from the input handlers since the last tick
+    events.dispatch();
+    for (int i = 0; i < systems.length; i++)
     {
-      if(pastSelf != null)
-      {
-        pastSelf.replayCreature(turnCounter);
-      }
-      if(pastSelf.getTurnWorldEnds() == turnCounter && pastSelf.isZombie() && pastSelf.getActionBehaviors().get(pastSelf.getActionBehaviors().size()-1) != -1.0)
-      {
-        Zombie freeZombie = new Zombie(null, 0, 0,
-                pastSelf.getBoundingCircle().getTranslateX(), pastSelf.getBoundingCircle().getTranslateZ(), this);
-        freeZombie.create3DZombie(Tile.tileSize);
-        zombieHouse.meshZombie(freeZombie);
-        initializeZombiePast(freeZombie);
-        zombies.add(freeZombie);
-        pastSelf.selfMeshes.setVisible(false);
-        pastSelf.getBoundingCircle().setTranslateX(0);
-        pastSelf.getBoundingCircle().setTranslateZ(0);
-      }
+      long start = System.nanoTime();
+      systems[i].update(timekeeper);
+      events.dispatch();
+      systemNanos[i] += System.nanoTime() - start;
+    }
+    lastTickNanos = System.nanoTime() - tickStart;
+    if (Attributes.Profile_Systems && timekeeper % PROFILE_REPORT_TICKS == 0)
+    {
+      printSystemTimes();
     }
 
     if (player.isDead.get())
     {
       playerLives--;
+      saveInputs();
       //soundManager.stopTrack();
       //soundManager.playSoundClip(Sound.death);
       //log this player as a new PastSelf to be replayed upon level restart
-      pastSelves.add(new PastSelf(player.getWalkBehaviorsX(), player.getWalkBehaviorsZ(), player.getActionBehaviors(), false, turnCounter));
-      pastSelves.addAll(tempPastZombies);
+      addPastSelf(new PastSelf(player.getTimeline(), false, turnCounter));
+      for(PastSelf pastZombie : tempPastZombies)
+      {
+        addPastSelf(pastZombie);
+      }
       //remove zombies that player interacted with from zombies list and create as new PastSelf
       for(Zombie zombie : interactingZombies)
       {
         if(zombies.contains(zombie)) zombies.remove(zombie);
-        pastSelves.add(new PastSelf(zombie.getWalkBehaviorsX(), zombie.getWalkBehaviorsZ(), zombie.getActionBehaviors(), true, turnCounter));
+        addPastSelf(new PastSelf(zombie.getTimeline(), true, turnCounter));
+        world.despawn(zombie.id);
         zombieHouse.gameBoard[zombie.col][zombie.row].hasZombie = false;
       }
 
       interactingZombies.clear();
       tempPastZombies.clear();
 
-      HBox hBox = new HBox();
-      if(playerLives <= 0)
+      gameOver = true;
+      int livesLeft = playerLives;
+      zombieHouse.runOnRender(() ->
       {
-        hBox.getChildren().addAll(scenes.returnButton);
-        Label gameOverLabel = new Label("Game Over!");
-        gameOverLabel.setStyle("-fx-font: 100px Tahoma; -fx-text-fill: red;");
-        scenes.gameOverRoot.setCenter(gameOverLabel);
-      }
-      else
-      {
-        hBox.getChildren().addAll(scenes.returnButton, scenes.goTo3dGameDeath);
-        Label livesRemaining = new Label("Lives Remaining: " + playerLives);
-        livesRemaining.setStyle("-fx-font: 50px Tahoma; -fx-text-fill: red;");
-        scenes.gameOverRoot.setCenter(livesRemaining);
-      }
-      scenes.gameOverRoot.setTop(hBox);
-      main.assignStage(scenes.gameOver);
-      zombieHouse.gameLoop.stop();
+        HBox hBox = new HBox();
+        if(livesLeft <= 0)
+        {
+          hBox.getChildren().addAll(scenes.returnButton);
+          Label gameOverLabel = new Label("Game Over!");
+          gameOverLabel.setStyle("-fx-font: 100px Tahoma; -fx-text-fill: red;");
+          scenes.gameOverRoot.setCenter(gameOverLabel);
+        }
+        else
+        {
+          hBox.getChildren().addAll(scenes.returnButton, scenes.goTo3dGameDeath);
+          Label livesRemaining = new Label("Lives Remaining: " + livesLeft);
+          livesRemaining.setStyle("-fx-font: 50px Tahoma; -fx-text-fill: red;");
+          scenes.gameOverRoot.setCenter(livesRemaining);
+        }
+        scenes.gameOverRoot.setTop(hBox);
+        main.assignStage(scenes.gameOver);
+        zombieHouse.stopGameLoop();
+      });
     }
 
-    if (player!=null && player.foundExit.get())
+    if (!gameOver && player.foundExit.get())
     {
       //soundManager.stopTrack();
       //soundManager.playSoundClip(Sound.achieve);
-      destroyZombieHouse();
-      HBox hBox = new HBox();
-      scenes.updateWinScreen();
-      hBox.getChildren().addAll(scenes.returnButton);
-      scenes.winRoot.setTop(hBox);
-      main.assignStage(scenes.win);
+      gameOver = true;
+      zombieHouse.runOnRender(() ->
+      {
+        destroyZombieHouse();
+        HBox hBox = new HBox();
+        scenes.updateWinScreen();
+        hBox.getChildren().addAll(scenes.returnButton);
+        scenes.winRoot.setTop(hBox);
+        main.assignStage(scenes.win);
+      });
     }
     turnCounter++;
   }
 
-  /**@author Nick Schrandt
+  /**
+   * Called instead of tick() while the game is paused or the player is dead.
+   * Only the player moves, and a snapshot is published so the camera follows.
+   */
+  public void idleTick()
+  {
+    runCommands();
+    player.tick();
+    world.setTransform(player.id, player.boundingCircle.getTranslateX(),
+        player.boundingCircle.getTranslateZ(), player.angle);
+    renderSyncSystem.publish(timekeeper);
+  }
+
+  /**
+   * Queues a player action from an input handler. It runs at the start of
+   * the next tick, on the thread that runs the simulation, so the handlers
+   * never change the creatures in the middle of a tick.
    *
-   * Increments the counter for the region where a new zombie spawn tile was created.
-   * This will create a more general distribution of zombies.
+   * @param command
+   *        The action to run.
+   */
+  public void submit(Runnable command)
+  {
+    commands.add(command);
+  }
+
+  /**
+   * Queues an input of the player from an input handler, to be applied at
+   * the start of the next tick. Ignored while the game is played from an
+   * input log.
+   *
+   * @param input
+   *        What the player did.
+   * @param value
+   *        The value of the input, see PlayerInput.
+   */
+  public void input(PlayerInput input, double value)
+  {
+    if (inputPlayback != null) return;
+    commands.add(() -> applyInput(input, value));
+  }
+
+  /**
+   * Applies an input of the player to the simulation and logs it.
    *
-   * @param region the region that a new zombie tile is in
+   * @param input
+   *        What the player did.
+   * @param value
+   *        The value of the input, see PlayerInput.
    */
-  private void incrementRegionCounter(int region)
+  void applyInput(PlayerInput input, double value)
   {
-    if(region == 1)
+    if (inputRecording != null)
     {
-      region1Counter++;
+      inputRecording.record(getLife(), turnCounter, input, value);
     }
-    if(region == 2)
+    boolean down = value != 0;
+    switch (input)
     {
-      region2Counter++;
+      case FORWARD:
+        player.wDown.set(down);
+        player.velocity = down ? Player.WALKINGSPEED : 0;
+        break;
+      case BACKWARD:
+        player.sDown.set(down);
+        player.velocity = down ? -Player.WALKINGSPEED : 0;
+        break;
+      case STRAFE_LEFT:
+        player.aDown.set(down);
+        player.strafeVelocity = down ? Player.WALKINGSPEED : 0;
+        break;
+      case STRAFE_RIGHT:
+        player.dDown.set(down);
+        player.strafeVelocity = down ? -Player.WALKINGSPEED : 0;
+        break;
+      case SPRINT:
+        player.shiftPressed.set(down);
+        break;
+      case TURN_LEFT:
+        player.turnLeft = down;
+        break;
+      case TURN_RIGHT:
+        player.turnRight = down;
+        break;
+      case ROTATE:
+        // the mouse leaves the player turning, like the arrow keys
+        player.angle += value;
+        if (value > 0) player.turnRight = true;
+        else player.turnLeft = true;
+        break;
+      case ATTACK:
+        // a click while the last swing is playing does nothing
+        if (player.isAttacking()) break;
+        playerAttack(player.boundingCircle);
+        player.setAttacking();
+        break;
+      case PUSH:
+        if (player.isPushing()) break;
+        playerPush();
+        player.setPushing();
+        break;
+      case HIT:
+        player.getHit((int) value);
+        break;
+      case REPLAY_REWIND:
+        replay.rewind((int) value);
+        break;
+      case REPLAY_SPEED:
+        // doubles the speed up to 8, then starts over at 2
+        replay.setSpeed(replay.isLive() || replay.getSpeed() >= 8 ? 2 : replay.getSpeed() * 2);
+        break;
+      case REPLAY_LIVE:
+        replay.followGame();
+        break;
     }
-    if(region == 3)
+  }
+
+  /**
+   * @return The life the player is on, from 0.
+   */
+  private int getLife()
+  {
+    return STARTING_LIVES - playerLives;
+  }
+
+  /**
+   * Runs the queued player actions.
+   */
+  private void runCommands()
+  {
+    Runnable command;
+    while ((command = commands.poll()) != null)
     {
-      region3Counter++;
+      command.run();
     }
-    if(region == 4)
+  }
+
+  /**
+   * @return How long the systems of the last tick took, in nanoseconds.
+   */
+  public long getLastTickNanos()
+  {
+    return lastTickNanos;
+  }
+
+  /**
+   * @return true once the player died or found the exit.
+   */
+  public boolean isGameOver()
+  {
+    return gameOver;
+  }
+
+  /**
+   * Prints the average time each system took per tick since the last report,
+   * then starts counting again.
+   */
+  private void printSystemTimes()
+  {
+    StringBuilder report = new StringBuilder("System times (us/tick):");
+    for (int i = 0; i < systems.length; i++)
     {
-      region4Counter++;
+      report.append(' ').append(systems[i].getClass().getSimpleName()).append('=')
+          .append(systemNanos[i] / 1000 / PROFILE_REPORT_TICKS);
+      systemNanos[i] = 0;
     }
+    System.out.println(report);
   }
 
-  /**@author Nick Schrandt
+  /**
+   * Gives a past self an id in the world and adds it to the past selves that
+   * are replayed in the next games.
    *
-   * Returns the number of zombies in a specific region. Used to create a more general
-   * distribution of zombies.
+   * @param pastSelf
+   *        The past self to add.
+   */
+  private void addPastSelf(PastSelf pastSelf)
+  {
+    pastSelf.id = world.spawn(EntityWorld.PAST_SELF, pastSelf);
+    pastSelves.add(pastSelf);
+    replaySystem.invalidate();
+    if (replayWriter != null)
+    {
+      try
+      {
+        replayWriter.write(pastSelf);
+      } catch (IOException e)
+      {
+        System.out.println("Stopped writing replay: " + e.getMessage());
+        closeReplay();
+      }
+    }
+  }
+
+  /**
+   * Called once at the start of a game, when its map is built. Loads the past
+   * selves of Attributes.Replay_Load_File and the inputs of
+   * Attributes.Input_Play_File if they were recorded on this map, then starts
+   * logging this game to Attributes.Input_Record_File and
+   * Attributes.Replay_Record_File.
    *
-   * @param region region where a zombie spawn tile is created
-   * @return number of zombie spawn tiles in that region.
+   * @param gameBoard
+   *          The map of the game.
+   * @param difficulty
+   *          The difficulty the map was made for.
    */
-  private int getRegionCounter(int region)
+  public void openReplays(Tile[][] gameBoard, int difficulty)
   {
-    if(region == 1)
+    if (Attributes.Replay_Load_File != null)
     {
-      return region1Counter;
+      try
+      {
+        ReplayFile.Reader reader = new ReplayFile.Reader(Paths.get(Attributes.Replay_Load_File));
+        if (reader.isRecordedOn(gameBoard))
+        {
+          for (PastSelf pastSelf : reader.readPastSelves())
+          {
+            pastSelf.id = world.spawn(EntityWorld.PAST_SELF, pastSelf);
+            pastSelves.add(pastSelf);
+          }
+          replaySystem.invalidate();
+        }
+        else
+        {
+          System.out.println("Replay was recorded on another map: " + Attributes.Replay_Load_File);
+        }
+      } catch (IOException e)
+      {
+        System.out.println("Could not load replay: " + e.getMessage());
+      }
     }
-    if(region == 2)
+    if (Attributes.Input_Play_File != null)
     {
-      return region2Counter;
+      try
+      {
+        inputPlayback = InputLog.read(Paths.get(Attributes.Input_Play_File));
+        if (inputPlayback.getSeed() != GameRandom.getSeed() || inputPlayback.getDifficulty() != difficulty)
+        {
+          System.out.println("Input log was recorded on another map: " + Attributes.Input_Play_File);
+          inputPlayback = null;
+        }
+      } catch (IOException e)
+      {
+        System.out.println("Could not load input log: " + e.getMessage());
+      }
     }
-    if(region == 3)
+    if (Attributes.Input_Record_File != null && inputPlayback == null)
     {
-      return region3Counter;
+      inputRecording = new InputLog(GameRandom.getSeed(), difficulty);
     }
-    if(region == 4)
+    if (Attributes.Replay_Record_File != null)
     {
-      return region4Counter;
+      try
+      {
+        replayWriter = new ReplayFile.Writer(Paths.get(Attributes.Replay_Record_File),
+            GameRandom.getSeed(), difficulty, gameBoard);
+      } catch (IOException e)
+      {
+        System.out.println("Could not write replay: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Writes the inputs logged so far, if they are being logged.
+   */
+  private void saveInputs()
+  {
+    if (inputRecording == null) return;
+    try
+    {
+      inputRecording.write(Paths.get(Attributes.Input_Record_File));
+    } catch (IOException e)
+    {
+      System.out.println("Could not write input log: " + e.getMessage());
     }
-    return 0;
+  }
+
+  /**
+   * Finishes the replay file of this game, if one is being written.
+   */
+  private void closeReplay()
+  {
+    if (replayWriter == null) return;
+    try
+    {
+      replayWriter.close();
+    } catch (IOException e)
+    {
+      e.printStackTrace();
+    }
+    replayWriter = null;
+  }
+
+  /**
+   * Lets a past zombie break free of its timeline. A new zombie starts where
+   * the past zombie is and carries on from this turn.
+   *
+   * @param pastSelf
+   *        The past zombie that breaks free.
+   */
+  void freeZombie(PastSelf pastSelf)
+  {
+    spawnZombieAt(pastSelf.getBoundingCircle().getTranslateX(), pastSelf.getBoundingCircle().getTranslateZ());
+  }
+
+  /**
+   * Makes a zombie in the middle of a game. Its mesh shares the zombie
+   * animation that is already loaded, so this is cheap enough to do during a
+   * tick.
+   *
+   * @param x
+   *        x coordinate of the new zombie
+   * @param z
+   *        z coordinate of the new zombie
+   * @return The new zombie, which has been added to the zombies.
+   */
+  private Zombie spawnZombieAt(double x, double z)
+  {
+    Zombie zombie = new Zombie(null, 0, 0, x, z, this);
+    zombie.create3DZombie(Tile.tileSize);
+    zombieHouse.meshZombie(zombie);
+    //begin life as a zombie!
+    initializeZombiePast(zombie);
+    zombies.add(zombie);
+    return zombie;
   }
 
   /**@author Nick Schrandt
@@ -653,101 +1010,81 @@ public class EntityManager
   }
 
   /**
+   * Runs the decisions of the zombies that are due on this tick. Regular
+   * zombies decide every two seconds and the master zombie, which has a
+   * faster decision rate, every half second.
    *
-   * @author Jeffrey McCall This is a class that extends Thread and is used to
-   *         keep track of the decision rate of the zombies, which is 2 seconds.
-   *
+   * @param tick
+   *        The number of ticks the game has been running.
    */
-  private class ZombieDecision extends Thread
+  public void updateDecisions(int tick)
   {
-    /**
-     * Every two seconds, if the zombie is a random walk zombie, a new angle for
-     * the zombie to walk in is chosen. If the zombie has hit an obstacle, then
-     * the angleAdjusted boolean flag will be on, to indicate that the angle was
-     * adjusted when the zombie hit an obstacle. In this case, the
-     * "makeDecision()" method is called to determine the new angle for the
-     * zombie to travel in, and start it moving again. If the zombie is chasing after
-     * the player, then the "findNewPath" boolean is set to on to indicate that a new
-     * direction towards the player needs to be set.
-     */
-    @Override
-    public void run()
+    if (tick % ZOMBIE_DECISION_TICKS == 0)
     {
-      while (gameIsRunning.get() == true)
-      {
-        try
-        {
-          sleep(2000);
-        } catch (InterruptedException e)
-        {
-          e.printStackTrace();
-        }
-        for(Zombie zombie:zombies)
-        {
-          if(!zombie.isMasterZombie)
-          {
-            if (zombie.goingAfterPlayer.get())
-            {
-              zombie.findNewPath.set(true);
-            }
-            if (zombie.randomWalk && !zombie.goingAfterPlayer.get())
-            {
-              zombie.angle = zombie.rand.nextInt(360);
-            }
-            if (zombie.angleAdjusted.get())
-            {
-              zombie.makeDecision();
-            }
-          }
-        }
-      }
+      zombieDecision();
+    }
+    if (masterZombie != null && tick % MASTER_DECISION_TICKS == 0)
+    {
+      masterZombieDecision();
     }
   }
 
   /**
-   *
    * @author Jeffrey McCall
-   * Thread for the decision rate of the master zombie. It has a
-   * faster decision rate than the regular zombies. The same operations
-   * are performed on the master zombie that are performed on the
-   * other zombies.
-   *
+   * If the zombie is a random walk zombie, a new angle for
+   * the zombie to walk in is chosen. If the zombie has hit an obstacle, then
+   * the angleAdjusted boolean flag will be on, to indicate that the angle was
+   * adjusted when the zombie hit an obstacle. In this case, the
+   * "makeDecision()" method is called to determine the new angle for the
+   * zombie to travel in, and start it moving again. If the zombie is chasing after
+   * the player, then the "findNewPath" boolean is set to on to indicate that a new
+   * direction towards the player needs to be set.
    */
-  private class MasterZombieDecision extends Thread
+  private void zombieDecision()
   {
-    /**
-     * While the game is running, perform the same operations on
-     * the master zombie that would be performed on the regular zombies.
-     */
-    @Override
-    public void run()
+    for(Zombie zombie:zombies)
     {
-      while (gameIsRunning.get() == true)
+      if(!zombie.isMasterZombie && !world.dormant[zombie.id])
       {
-        try
+        if (zombie.goingAfterPlayer.get())
         {
-          sleep(500);
-        } catch (InterruptedException e)
-        {
-          e.printStackTrace();
-        }
-        if (masterZombie.masterZombieChasePlayer.get())
-        {
-          masterZombie.findNewPath.set(true);
+          zombie.findNewPath.set(true);
         }
-        if (masterZombie.randomWalk &&
-            !masterZombie.masterZombieChasePlayer.get())
+        if (zombie.randomWalk && !zombie.goingAfterPlayer.get())
         {
-          masterZombie.angle = masterZombie.rand.nextInt(360);
+          zombie.angle = zombie.rand.nextInt(360);
         }
-        if (masterZombie.angleAdjusted.get())
+        if (zombie.angleAdjusted.get())
         {
-          masterZombie.makeDecision();
+          zombie.makeDecision();
         }
       }
     }
   }
 
+  /**
+   * @author Jeffrey McCall
+   * Performs the same operations on the master zombie that are performed
+   * on the other zombies.
+   */
+  private void masterZombieDecision()
+  {
+    if (world.dormant[masterZombie.id]) return;
+    if (masterZombie.masterZombieChasePlayer.get())
+    {
+      masterZombie.findNewPath.set(true);
+    }
+    if (masterZombie.randomWalk &&
+        !masterZombie.masterZombieChasePlayer.get())
+    {
+      masterZombie.angle = masterZombie.rand.nextInt(360);
+    }
+    if (masterZombie.angleAdjusted.get())
+    {
+      masterZombie.makeDecision();
+    }
+  }
+
   /**
    * @param zombieHouse
    * ZombieHouse3d Object
@@ -766,6 +1103,8 @@ public class EntityManager
   public void disposeCreatures()
   {
     gameIsRunning.set(false);
+    closeReplay();
+    saveInputs();
 
     player.dispose();
     player = null;
@@ -781,39 +1120,8 @@ public class EntityManager
       pastSelf.dispose();
     }
     pastSelves.clear();
-  }
-
-  /**
-   * Darken tiles as a function of camera's visible distance, or FarClip, setting
-   * @author Sarah Salmonson
-   */
-  private void fadeToBlack(List<Box> tiles)
-  {
-    double visibleDistance = zombieHouse.getCamera().getFarClip();
-    //get camera's current location
-    double playerXLocation = player.boundingCircle.getTranslateX();
-    double playerZLocation = player.boundingCircle.getTranslateZ();
-    for (Box tile : tiles)
-    {
-      //get the location of the tile we're examining
-      double tileXLocation = tile.getTranslateX();
-      double tileZLocation = tile.getTranslateZ();
-      //get the distance between player and tile X and Y coordinates
-      double distanceX = playerXLocation - tileXLocation;
-      double distanceZ = playerZLocation - tileZLocation;
-      //calculate linear distance using coordinates. Formula d = sqrt[(x1-x2)^2 + (y1-y2)^2]
-      double linearDistance = Math.sqrt(distanceX * distanceX + distanceZ * distanceZ);
-      //use this calculation to generate a distanceModifier that will impact tile texture color
-      double darknessValue = 1.0 - linearDistance / visibleDistance;
-      //if distance is in visible range, use the distance modifier to set the tile texture color
-      //the further away, the darker the wall texture
-      if (darknessValue < 0)
-      {
-        darknessValue = 0.0;
-      }
-      ((PhongMaterial) tile.getMaterial()).setDiffuseColor(Color.color(darknessValue, darknessValue, darknessValue));
-      ((PhongMaterial) tile.getMaterial()).setSpecularColor(Color.color(darknessValue, darknessValue, darknessValue));
-    }
+    replaySystem.invalidate();
+    world = new EntityWorld();
   }
 
   /**
@@ -833,22 +1141,24 @@ public class EntityManager
   public void resetEM()
   {
     zombies.clear();
+    world.despawnAll(EntityWorld.ZOMBIE);
+    world.despawnAll(EntityWorld.PLAYER);
+    aiSystem.reset();
+    events.clear();
+    commands.clear();
+    replay.followGame();
+    gameOver = false;
+    masterZombie = null;
     turnCounter = 0;
   }
 
   /**
-   * Make sure each zombie created mid-game has full lists of behaviors and an accuate turn coutner
+   * Make sure each zombie created mid-game starts its timeline on the current turn
    * @author Sarah Salmonson
    * @param zombie
    */
   private void initializeZombiePast(Zombie zombie)
   {
-    zombie.setTurnCounter(turnCounter);
-    for(int i = 0; i < turnCounter; i++)
-    {
-      zombie.getActionBehaviors().add(i, -1.0);
-      zombie.getWalkBehaviorsX().add(i, -1.0);
-      zombie.getWalkBehaviorsZ().add(i, -1.0);
-    }
+    zombie.getTimeline().startAt(turnCounter);
   }
 }
@@ -0,0 +1,259 @@
+package entities;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import game_engine.AnimatedMesh;
+
+/**
+ * The component store of the game. Every creature (the player, the zombies
+ * and the past selves) is an integer id into this world, and the state that
+ * the systems work on is kept in dense arrays indexed by that id, one array
+ * per component field. The systems run over the ids in order, so each of
+ * them touches one or two arrays instead of chasing fields through the
+ * creature objects.
+ *
+ * Components:
+ * <ul>
+ * <li>Transform - x, z, angle</li>
+ * <li>Velocity - vx, vz, how far the entity moved on the last tick</li>
+ * <li>Health - hitPoints, attackCooldown</li>
+ * <li>AIState - aiDetail, dormant, lastUpdate</li>
+ * <li>TimelineRecorder - timeline</li>
+ * <li>MeshAnimator - meshes, frame, lastFrame, frameForward, visible</li>
+ * </ul>
+ */
+public class EntityWorld
+{
+  // kinds of entities
+  public static final int NONE = 0;
+  public static final int PLAYER = 1;
+  public static final int ZOMBIE = 2;
+  public static final int PAST_SELF = 3;
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private int capacity = 0;
+  // one past the highest id that was ever handed out
+  private int size = 0;
+  private final ArrayDeque<Integer> freeIds = new ArrayDeque<>();
+
+  public int[] kind = new int[0];
+  public Object[] owner = new Object[0];
+
+  // Transform
+  public double[] x = new double[0];
+  public double[] z = new double[0];
+  public double[] angle = new double[0];
+
+  // Velocity
+  public double[] vx = new double[0];
+  public double[] vz = new double[0];
+
+  // Health
+  public double[] hitPoints = new double[0];
+  public int[] attackCooldown = new int[0];
+
+  // AIState; lastUpdate is the tick the entity was last moved on, -1 if it
+  // hasn't been since it was made
+  public Zombie.AiDetail[] aiDetail = new Zombie.AiDetail[0];
+  public boolean[] dormant = new boolean[0];
+  public int[] lastUpdate = new int[0];
+
+  // TimelineRecorder, null if the entity is not recorded
+  public TimelineRecorder[] timeline = new TimelineRecorder[0];
+
+  // MeshAnimator, meshes is null if the entity is not animated; frame is
+  // where the animation is, between two frames when they are blended
+  public AnimatedMesh[] meshes = new AnimatedMesh[0];
+  public double[] frame = new double[0];
+  public int[] lastFrame = new int[0];
+  public boolean[] frameForward = new boolean[0];
+  public boolean[] visible = new boolean[0];
+
+  /**
+   * Creates an empty world.
+   */
+  public EntityWorld()
+  {
+    grow(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Creates a new entity. Ids of removed entities are reused.
+   *
+   * @param entityKind
+   *          PLAYER, ZOMBIE or PAST_SELF
+   * @param entity
+   *          The object that owns the id.
+   * @return The id of the new entity.
+   */
+  public int spawn(int entityKind, Object entity)
+  {
+    int id;
+    if (freeIds.isEmpty())
+    {
+      if (size == capacity)
+      {
+        grow(capacity * 2);
+      }
+      id = size++;
+    }
+    else
+    {
+      id = freeIds.pop();
+    }
+    kind[id] = entityKind;
+    owner[id] = entity;
+    x[id] = 0;
+    z[id] = 0;
+    angle[id] = 0;
+    vx[id] = 0;
+    vz[id] = 0;
+    hitPoints[id] = 0;
+    attackCooldown[id] = 0;
+    aiDetail[id] = Zombie.AiDetail.NEAR;
+    dormant[id] = false;
+    lastUpdate[id] = -1;
+    timeline[id] = null;
+    meshes[id] = null;
+    frame[id] = 0;
+    lastFrame[id] = 0;
+    frameForward[id] = true;
+    visible[id] = true;
+    return id;
+  }
+
+  /**
+   * Removes an entity from the world. Its id may be handed out again.
+   *
+   * @param id
+   *          The id of the entity.
+   */
+  public void despawn(int id)
+  {
+    if (id < 0 || id >= size || kind[id] == NONE) return;
+    kind[id] = NONE;
+    owner[id] = null;
+    timeline[id] = null;
+    meshes[id] = null;
+    freeIds.push(id);
+  }
+
+  /**
+   * Removes every entity of the given kind.
+   *
+   * @param entityKind
+   *          PLAYER, ZOMBIE or PAST_SELF
+   */
+  public void despawnAll(int entityKind)
+  {
+    for (int id = 0; id < size; id++)
+    {
+      if (kind[id] == entityKind)
+      {
+        despawn(id);
+      }
+    }
+  }
+
+  /**
+   * @return One past the highest id in use. Systems loop from 0 to size()
+   *         and skip the ids whose kind is NONE.
+   */
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Moves the entity and works out its velocity from where it was.
+   *
+   * @param id
+   *          The id of the entity.
+   * @param newX
+   *          The new x coordinate.
+   * @param newZ
+   *          The new z coordinate.
+   * @param newAngle
+   *          The direction the entity is facing, in degrees.
+   */
+  public void setTransform(int id, double newX, double newZ, double newAngle)
+  {
+    vx[id] = newX - x[id];
+    vz[id] = newZ - z[id];
+    x[id] = newX;
+    z[id] = newZ;
+    angle[id] = newAngle;
+  }
+
+  /**
+   * Gives the entity an animation. It plays back and forth between frame 0
+   * and the last frame of the mesh's animation. Only the frame number is
+   * kept here; the renderer has the mesh show it.
+   *
+   * @param id
+   *          The id of the entity.
+   * @param mesh
+   *          The mesh that plays the animation.
+   * @param startFrame
+   *          The frame to start the animation on.
+   */
+  public void startAnimation(int id, AnimatedMesh mesh, int startFrame)
+  {
+    meshes[id] = mesh;
+    lastFrame[id] = mesh.getLastFrame();
+    frame[id] = startFrame;
+    frameForward[id] = true;
+  }
+
+  /**
+   * @author Hector Carrillo
+   * Moves on along the animation sequence
+   * The animation sequence only contains objects for taking one step forward, so to take two steps
+   * the animation must change directions and go backwards
+   *
+   * @param id
+   *          The id of the animated entity.
+   * @param step
+   *          How many frames to move on by, which may be part of a frame.
+   */
+  public void nextFrame(int id, double step)
+  {
+    double next = frame[id] + (frameForward[id] ? step : -step);
+    if (next >= lastFrame[id])
+    {
+      next = Math.max(0, 2 * lastFrame[id] - next);
+      frameForward[id] = false;
+    }
+    else if (next <= 0)
+    {
+      next = Math.min(lastFrame[id], -next);
+      frameForward[id] = true;
+    }
+    frame[id] = next;
+  }
+
+  private void grow(int newCapacity)
+  {
+    kind = Arrays.copyOf(kind, newCapacity);
+    owner = Arrays.copyOf(owner, newCapacity);
+    x = Arrays.copyOf(x, newCapacity);
+    z = Arrays.copyOf(z, newCapacity);
+    angle = Arrays.copyOf(angle, newCapacity);
+    vx = Arrays.copyOf(vx, newCapacity);
+    vz = Arrays.copyOf(vz, newCapacity);
+    hitPoints = Arrays.copyOf(hitPoints, newCapacity);
+    attackCooldown = Arrays.copyOf(attackCooldown, newCapacity);
+    aiDetail = Arrays.copyOf(aiDetail, newCapacity);
+    dormant = Arrays.copyOf(dormant, newCapacity);
+    lastUpdate = Arrays.copyOf(lastUpdate, newCapacity);
+    timeline = Arrays.copyOf(timeline, newCapacity);
+    meshes = Arrays.copyOf(meshes, newCapacity);
+    frame = Arrays.copyOf(frame, newCapacity);
+    lastFrame = Arrays.copyOf(lastFrame, newCapacity);
+    frameForward = Arrays.copyOf(frameForward, newCapacity);
+    visible = Arrays.copyOf(visible, newCapacity);
+    capacity = newCapacity;
+  }
+}
@@ -0,0 +1,120 @@
+package entities;
+
+import java.util.Arrays;
+
+/**
+ * A Timeline that keeps every turn as is, in columns of float chunks, so
+ * recording a turn boxes nothing and growing never copies the turns already
+ * recorded. Every turn can be read in constant time, in any order.
+ */
+public class FloatTimeline implements Timeline
+{
+  private static final int CHUNK_BITS = 10;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  private float[][] x = new float[1][];
+  private float[][] z = new float[1][];
+  private float[][] action = new float[1][];
+  private int size = 0;
+  private boolean ended = false;
+
+  @Override
+  public void append(double newX, double newZ, double newAction)
+  {
+    if (ended) return;
+    int chunk = size >>> CHUNK_BITS;
+    int index = size & CHUNK_MASK;
+    if (index == 0)
+    {
+      addChunk(chunk);
+    }
+    x[chunk][index] = (float) newX;
+    z[chunk][index] = (float) newZ;
+    action[chunk][index] = (float) newAction;
+    size++;
+  }
+
+  @Override
+  public void hold(int turns)
+  {
+    if (ended || size == 0) return;
+    int last = size - 1;
+    float lastX = x[last >>> CHUNK_BITS][last & CHUNK_MASK];
+    float lastZ = z[last >>> CHUNK_BITS][last & CHUNK_MASK];
+    float lastAction = action[last >>> CHUNK_BITS][last & CHUNK_MASK];
+    int end = size + turns;
+    while (size < end)
+    {
+      // a chunk at a time
+      int chunk = size >>> CHUNK_BITS;
+      int index = size & CHUNK_MASK;
+      if (index == 0)
+      {
+        addChunk(chunk);
+      }
+      int count = Math.min(CHUNK_SIZE - index, end - size);
+      Arrays.fill(x[chunk], index, index + count, lastX);
+      Arrays.fill(z[chunk], index, index + count, lastZ);
+      Arrays.fill(action[chunk], index, index + count, lastAction);
+      size += count;
+    }
+  }
+
+  @Override
+  public void end()
+  {
+    ended = true;
+  }
+
+  @Override
+  public boolean isEnded()
+  {
+    return ended;
+  }
+
+  @Override
+  public int size()
+  {
+    return size;
+  }
+
+  @Override
+  public double getX(int turn)
+  {
+    return x[turn >>> CHUNK_BITS][turn & CHUNK_MASK];
+  }
+
+  @Override
+  public double getZ(int turn)
+  {
+    return z[turn >>> CHUNK_BITS][turn & CHUNK_MASK];
+  }
+
+  @Override
+  public boolean hasAction(int turn)
+  {
+    return turn < size || (ended && turn == size);
+  }
+
+  @Override
+  public double getAction(int turn)
+  {
+    if (turn == size) return DEAD;
+    return action[turn >>> CHUNK_BITS][turn & CHUNK_MASK];
+  }
+
+  private void addChunk(int chunk)
+  {
+    if (chunk == x.length)
+    {
+      // only the chunk references are copied
+      x = Arrays.copyOf(x, chunk * 2);
+      z = Arrays.copyOf(z, chunk * 2);
+      action = Arrays.copyOf(action, chunk * 2);
+    }
+    x[chunk] = new float[CHUNK_SIZE];
+    z[chunk] = new float[CHUNK_SIZE];
+    action[chunk] = new float[CHUNK_SIZE];
+  }
+}
@@ -0,0 +1,88 @@
+package entities;
+
+import java.util.Arrays;
+
+import game_engine.AnimatedMesh;
+import javafx.scene.shape.Box;
+
+/**
+ * What the simulation looks like at the end of one tick: everything the
+ * renderer needs to put the scene graph in the same state, copied out of the
+ * world so that the renderer never reads the creatures while they are being
+ * updated. Snapshots are filled by RenderSyncSystem and reused through a
+ * TripleBuffer, so the arrays only grow.
+ *
+ * Each drawn entity is one row: its mesh group, its health bar (null for past
+ * selves), where it is, which way it faces, which animation frame is shown,
+ * whether it is visible, and its health as a fraction of full health.
+ */
+public class FrameSnapshot
+{
+  // goes up by one every time a snapshot is published
+  public long frameNumber;
+  public int tick;
+
+  public double playerX;
+  public double playerZ;
+  public double playerAngle;
+  public int playerHitPoints;
+  public double weaponPitch;
+  public double weaponYaw;
+  public double weaponRotationRadius;
+
+  public int count = 0;
+  public AnimatedMesh[] meshes = new AnimatedMesh[0];
+  public Box[] healthBars = new Box[0];
+  public double[] x = new double[0];
+  public double[] z = new double[0];
+  public double[] rotate = new double[0];
+  public double[] frame = new double[0];
+  public boolean[] visible = new boolean[0];
+  public double[] health = new double[0];
+
+  /**
+   * Empties the snapshot so it can be filled again.
+   */
+  public void clear()
+  {
+    // drop the references so removed creatures can be collected
+    Arrays.fill(meshes, 0, count, null);
+    Arrays.fill(healthBars, 0, count, null);
+    count = 0;
+  }
+
+  /**
+   * Adds a row for one drawn entity.
+   *
+   * @return The index of the row.
+   */
+  public int add(AnimatedMesh mesh, Box healthBar, double newX, double newZ, double newRotate,
+      double newFrame, boolean isVisible, double newHealth)
+  {
+    if (count == meshes.length)
+    {
+      grow(Math.max(16, count * 2));
+    }
+    meshes[count] = mesh;
+    healthBars[count] = healthBar;
+    x[count] = newX;
+    z[count] = newZ;
+    rotate[count] = newRotate;
+    frame[count] = newFrame;
+    visible[count] = isVisible;
+    health[count] = newHealth;
+    return count++;
+  }
+
+  private void grow(int capacity)
+  {
+    meshes = Arrays.copyOf(meshes, capacity);
+    healthBars = Arrays.copyOf(healthBars, capacity);
+    x = Arrays.copyOf(x, capacity);
+    z = Arrays.copyOf(z, capacity);
+    rotate = Arrays.copyOf(rotate, capacity);
+    frame = Arrays.copyOf(frame, capacity);
+    visible = Arrays.copyOf(visible, capacity);
+    health = Arrays.copyOf(health, capacity);
+  }
+}
@@ -0,0 +1,17 @@
+package entities;
+
+/**
+ * One step of the entity update. EntityManager runs its systems in a fixed
+ * order every tick, and each system reads and writes the components of the
+ * entities in the EntityWorld.
+ */
+public interface GameSystem
+{
+  /**
+   * Runs the system for one tick.
+   *
+   * @param tick
+   *          The number of ticks the game has been running.
+   */
+  void update(int tick);
+}
@@ -0,0 +1,191 @@
+package entities;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * The inputs of the player over a game, with the life and turn each was
+ * applied on. The simulation draws all of its randomness from the game seed
+ * and only changes through these inputs, so a game started with the same
+ * seed and fed the same inputs on the same turns plays out the same way,
+ * past selves included. A log takes a few bytes per input, however many
+ * zombies there are.
+ *
+ * The log only replaces state logging for whole games played back from the
+ * start. Within a running game the past selves are still replayed from the
+ * timelines RecordSystem records: rebuilding one from inputs would mean
+ * simulating its whole life again, with every zombie of that life, next to
+ * the game being played.
+ *
+ * <pre>
+ * file: int MAGIC, int VERSION, long seed, int difficulty, int count,
+ *       count * (int life, int turn, byte input, double value)
+ * </pre>
+ */
+public class InputLog
+{
+  private static final int MAGIC = 0x5A48494E; // "ZHIN"
+  private static final int VERSION = 1;
+  private static final PlayerInput[] INPUTS = PlayerInput.values();
+
+  private final long seed;
+  private final int difficulty;
+
+  private int count = 0;
+  private int[] lives = new int[64];
+  private int[] turns = new int[64];
+  private byte[] inputs = new byte[64];
+  private double[] values = new double[64];
+
+  // the next input to play back
+  private int next = 0;
+
+  /**
+   * Starts an empty log.
+   *
+   * @param seed
+   *          The seed of the game.
+   * @param difficulty
+   *          The difficulty of the game.
+   */
+  public InputLog(long seed, int difficulty)
+  {
+    this.seed = seed;
+    this.difficulty = difficulty;
+  }
+
+  /**
+   * Logs an input.
+   *
+   * @param life
+   *          The life it was applied on, from 0.
+   * @param turn
+   *          The turn of the life it was applied on.
+   * @param input
+   *          The input.
+   * @param value
+   *          The value of the input.
+   */
+  public void record(int life, int turn, PlayerInput input, double value)
+  {
+    if (count == lives.length)
+    {
+      lives = Arrays.copyOf(lives, count * 2);
+      turns = Arrays.copyOf(turns, count * 2);
+      inputs = Arrays.copyOf(inputs, count * 2);
+      values = Arrays.copyOf(values, count * 2);
+    }
+    lives[count] = life;
+    turns[count] = turn;
+    inputs[count] = (byte) input.ordinal();
+    values[count] = value;
+    count++;
+  }
+
+  /**
+   * Plays back the inputs of a turn, in the order they were logged. Inputs
+   * of earlier turns that were not played are skipped.
+   *
+   * @param life
+   *          The life the game is on.
+   * @param turn
+   *          The turn the game is on.
+   * @param entityManager
+   *          The game to apply the inputs to.
+   */
+  public void playBack(int life, int turn, EntityManager entityManager)
+  {
+    while (next < count && (lives[next] < life || (lives[next] == life && turns[next] < turn)))
+    {
+      next++;
+    }
+    while (next < count && lives[next] == life && turns[next] == turn)
+    {
+      entityManager.applyInput(INPUTS[inputs[next]], values[next]);
+      next++;
+    }
+  }
+
+  /**
+   * @return The seed of the logged game.
+   */
+  public long getSeed()
+  {
+    return seed;
+  }
+
+  /**
+   * @return The difficulty of the logged game.
+   */
+  public int getDifficulty()
+  {
+    return difficulty;
+  }
+
+  /**
+   * Writes the log to a file, replacing any file of the same name.
+   *
+   * @param path
+   *          Where to write the log.
+   * @throws IOException
+   *           if the file cannot be written
+   */
+  public void write(Path path) throws IOException
+  {
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path))))
+    {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(seed);
+      out.writeInt(difficulty);
+      out.writeInt(count);
+      for (int i = 0; i < count; i++)
+      {
+        out.writeInt(lives[i]);
+        out.writeInt(turns[i]);
+        out.writeByte(inputs[i]);
+        out.writeDouble(values[i]);
+      }
+    }
+  }
+
+  /**
+   * Reads a log written by write().
+   *
+   * @param path
+   *          The log file.
+   * @return The log, ready to be played back from the start.
+   * @throws IOException
+   *           if the file cannot be read or is not an input log
+   */
+  public static InputLog read(Path path) throws IOException
+  {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path))))
+    {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION)
+      {
+        throw new IOException("Not an input log: " + path);
+      }
+      InputLog log = new InputLog(in.readLong(), in.readInt());
+      int count = in.readInt();
+      for (int i = 0; i < count; i++)
+      {
+        int life = in.readInt();
+        int turn = in.readInt();
+        int input = in.readByte();
+        if (input < 0 || input >= INPUTS.length)
+        {
+          throw new IOException("Unknown input " + input + ": " + path);
+        }
+        log.record(life, turn, INPUTS[input], in.readDouble());
+      }
+      return log;
+    }
+  }
+}
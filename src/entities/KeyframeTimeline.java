@@ -0,0 +1,204 @@
+package entities;
+
+import java.util.Arrays;
+
+import game_engine.Attributes;
+
+/**
+ * A Timeline that only keeps the turns on which a creature changed what it
+ * was doing, and rebuilds the turns in between by moving it in a straight
+ * line from one kept turn to the next. Creatures mostly walk straight at a
+ * steady speed, so the size of the timeline follows the number of decisions
+ * made, not the number of turns.
+ *
+ * A turn is kept, as a keyframe, when:
+ * <ul>
+ * <li>the creature strays more than Attributes.Keyframe_Tolerance from the
+ * line it has been moving along, because it turned or changed speed (the
+ * turn before is kept);</li>
+ * <li>the angle it faces changes;</li>
+ * <li>MAX_KEYFRAME_TURNS turns have gone by since the last keyframe.</li>
+ * </ul>
+ * Every turn recorded lies within the tolerance of the line its keyframe
+ * was moving along, and so rebuilt positions are off by at most twice the
+ * tolerance.
+ */
+public class KeyframeTimeline implements Timeline
+{
+  private static final int MAX_KEYFRAME_TURNS = 120;
+
+  private int[] keyTurns = new int[8];
+  private float[] keyX = new float[8];
+  private float[] keyZ = new float[8];
+  private float[] keyAction = new float[8];
+  private int keyCount = 0;
+
+  private int size = 0;
+  private boolean ended = false;
+
+  // the last turn appended
+  private float lastX;
+  private float lastZ;
+  private float lastAction;
+
+  // how far the creature moves per turn since the last keyframe
+  private boolean moving = false;
+  private double stepX;
+  private double stepZ;
+
+  @Override
+  public void append(double x, double z, double action)
+  {
+    if (ended) return;
+    float newX = (float) x;
+    float newZ = (float) z;
+    float newAction = (float) action;
+    int turn = size;
+
+    if (keyCount == 0)
+    {
+      addKeyframe(turn, newX, newZ, newAction);
+    }
+    else
+    {
+      int key = keyCount - 1;
+      if (!moving)
+      {
+        int turns = turn - keyTurns[key];
+        stepX = (newX - keyX[key]) / turns;
+        stepZ = (newZ - keyZ[key]) / turns;
+        moving = true;
+      }
+      else
+      {
+        int turns = turn - keyTurns[key];
+        double expectedX = keyX[key] + stepX * turns;
+        double expectedZ = keyZ[key] + stepZ * turns;
+        if (Math.abs(newX - expectedX) > Attributes.Keyframe_Tolerance
+            || Math.abs(newZ - expectedZ) > Attributes.Keyframe_Tolerance)
+        {
+          // the line ended on the last turn, a new one starts there
+          addKeyframe(turn - 1, lastX, lastZ, lastAction);
+          stepX = newX - lastX;
+          stepZ = newZ - lastZ;
+          moving = true;
+        }
+      }
+      if (newAction != lastAction || turn - keyTurns[keyCount - 1] >= MAX_KEYFRAME_TURNS)
+      {
+        addKeyframe(turn, newX, newZ, newAction);
+      }
+    }
+    lastX = newX;
+    lastZ = newZ;
+    lastAction = newAction;
+    size++;
+  }
+
+  @Override
+  public void hold(int turns)
+  {
+    if (ended || size == 0 || turns <= 0) return;
+    // the line being moved along ends on the last turn, and a keyframe on
+    // the last turn held keeps the turns between the two in place
+    if (keyTurns[keyCount - 1] != size - 1)
+    {
+      addKeyframe(size - 1, lastX, lastZ, lastAction);
+    }
+    size += turns;
+    addKeyframe(size - 1, lastX, lastZ, lastAction);
+  }
+
+  @Override
+  public void end()
+  {
+    ended = true;
+  }
+
+  @Override
+  public boolean isEnded()
+  {
+    return ended;
+  }
+
+  @Override
+  public int size()
+  {
+    return size;
+  }
+
+  @Override
+  public double getX(int turn)
+  {
+    int key = keyframeOf(turn);
+    if (keyTurns[key] == turn) return keyX[key];
+    float nextX = key + 1 < keyCount ? keyX[key + 1] : lastX;
+    return keyX[key] + (nextX - keyX[key]) * fraction(key, turn);
+  }
+
+  @Override
+  public double getZ(int turn)
+  {
+    int key = keyframeOf(turn);
+    if (keyTurns[key] == turn) return keyZ[key];
+    float nextZ = key + 1 < keyCount ? keyZ[key + 1] : lastZ;
+    return keyZ[key] + (nextZ - keyZ[key]) * fraction(key, turn);
+  }
+
+  @Override
+  public boolean hasAction(int turn)
+  {
+    return turn < size || (ended && turn == size);
+  }
+
+  @Override
+  public double getAction(int turn)
+  {
+    if (turn == size) return DEAD;
+    return keyAction[keyframeOf(turn)];
+  }
+
+  /**
+   * @return The number of keyframes kept.
+   */
+  public int getKeyframeCount()
+  {
+    return keyCount;
+  }
+
+  /**
+   * @return The index of the last keyframe at or before the turn.
+   */
+  private int keyframeOf(int turn)
+  {
+    int index = Arrays.binarySearch(keyTurns, 0, keyCount, turn);
+    return index >= 0 ? index : -index - 2;
+  }
+
+  /**
+   * @return How far the turn is from its keyframe to the next one, or to the
+   *         last turn appended if it is after the last keyframe.
+   */
+  private double fraction(int key, int turn)
+  {
+    int nextTurn = key + 1 < keyCount ? keyTurns[key + 1] : size - 1;
+    return (double) (turn - keyTurns[key]) / (nextTurn - keyTurns[key]);
+  }
+
+  private void addKeyframe(int turn, float x, float z, float action)
+  {
+    if (keyCount == keyTurns.length)
+    {
+      keyTurns = Arrays.copyOf(keyTurns, keyCount * 2);
+      keyX = Arrays.copyOf(keyX, keyCount * 2);
+      keyZ = Arrays.copyOf(keyZ, keyCount * 2);
+      keyAction = Arrays.copyOf(keyAction, keyCount * 2);
+    }
+    keyTurns[keyCount] = turn;
+    keyX[keyCount] = x;
+    keyZ[keyCount] = z;
+    keyAction[keyCount] = action;
+    keyCount++;
+    moving = false;
+  }
+}
@@ -0,0 +1,190 @@
+package entities;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A Timeline read straight out of a replay file. The turns stay in the
+ * mapped file, in the encoding of a CompressedTimeline, and are decoded when
+ * they are replayed, so a loaded past self takes no heap for its turns.
+ * Nothing can be appended to it.
+ *
+ * As with a CompressedTimeline, reading the turn after the last one read is
+ * constant time, and any other turn is decoded from the keyframe before it.
+ */
+public class MappedTimeline implements Timeline
+{
+  private final ByteBuffer buffer;
+  private final int size;
+  private final boolean ended;
+  private final int keyCount;
+  private final int runCount;
+  // where each column starts in the buffer
+  private final int keyTurnsStart;
+  private final int keyXStart;
+  private final int keyZStart;
+  private final int runTurnsStart;
+  private final int runActionsStart;
+  private final int dxStart;
+  private final int dzStart;
+
+  // the last turn decoded, so reading turns in order is constant time
+  private int readTurn = -1;
+  private int readKey;
+  private int readStepsX;
+  private int readStepsZ;
+  private int readRun;
+
+  /**
+   * @param buffer
+   *          The mapped replay file. Only absolute reads are made, so it can
+   *          be shared by every timeline of the file.
+   * @param columnsStart
+   *          Where the encoded timeline starts, see CompressedTimeline.encode().
+   * @param size
+   *          The number of turns.
+   * @param keyCount
+   *          The number of keyframes.
+   * @param runCount
+   *          The number of runs of the same angle.
+   * @param ended
+   *          true if the creature died.
+   */
+  MappedTimeline(ByteBuffer buffer, int columnsStart, int size, int keyCount, int runCount, boolean ended)
+  {
+    this.buffer = buffer;
+    this.size = size;
+    this.ended = ended;
+    this.keyCount = keyCount;
+    this.runCount = runCount;
+    keyTurnsStart = columnsStart;
+    keyXStart = keyTurnsStart + keyCount * Integer.BYTES;
+    keyZStart = keyXStart + keyCount * Float.BYTES;
+    runTurnsStart = keyZStart + keyCount * Float.BYTES;
+    runActionsStart = runTurnsStart + runCount * Integer.BYTES;
+    dxStart = runActionsStart + runCount * Float.BYTES;
+    dzStart = dxStart + size;
+  }
+
+  @Override
+  public void append(double x, double z, double action)
+  {
+    // a recorded timeline cannot change
+  }
+
+  @Override
+  public void hold(int turns)
+  {
+  }
+
+  @Override
+  public void end()
+  {
+  }
+
+  @Override
+  public boolean isEnded()
+  {
+    return ended;
+  }
+
+  @Override
+  public int size()
+  {
+    return size;
+  }
+
+  @Override
+  public double getX(int turn)
+  {
+    seek(turn);
+    return buffer.getFloat(keyXStart + readKey * Float.BYTES) + readStepsX / CompressedTimeline.POSITION_STEPS;
+  }
+
+  @Override
+  public double getZ(int turn)
+  {
+    seek(turn);
+    return buffer.getFloat(keyZStart + readKey * Float.BYTES) + readStepsZ / CompressedTimeline.POSITION_STEPS;
+  }
+
+  @Override
+  public boolean hasAction(int turn)
+  {
+    return turn < size || (ended && turn == size);
+  }
+
+  @Override
+  public double getAction(int turn)
+  {
+    if (turn == size) return DEAD;
+    seek(turn);
+    return buffer.getFloat(runActionsStart + readRun * Float.BYTES);
+  }
+
+  /**
+   * Decodes the given turn into the read cursor, as CompressedTimeline does.
+   */
+  private void seek(int turn)
+  {
+    if (turn == readTurn) return;
+    if (turn != readTurn + 1 || readTurn < 0)
+    {
+      // start over from the keyframe and the angle run the turn is in
+      readKey = lastAtOrBefore(keyTurnsStart, keyCount, turn);
+      readRun = lastAtOrBefore(runTurnsStart, runCount, turn);
+      readTurn = keyTurn(readKey);
+      readStepsX = 0;
+      readStepsZ = 0;
+    }
+    else
+    {
+      readTurn++;
+      if (readKey + 1 < keyCount && keyTurn(readKey + 1) == readTurn)
+      {
+        readKey++;
+        readStepsX = 0;
+        readStepsZ = 0;
+      }
+      if (readRun + 1 < runCount && buffer.getInt(runTurnsStart + (readRun + 1) * Integer.BYTES) == readTurn)
+      {
+        readRun++;
+      }
+      readStepsX += buffer.get(dxStart + readTurn);
+      readStepsZ += buffer.get(dzStart + readTurn);
+    }
+    while (readTurn < turn)
+    {
+      readTurn++;
+      readStepsX += buffer.get(dxStart + readTurn);
+      readStepsZ += buffer.get(dzStart + readTurn);
+    }
+  }
+
+  private int keyTurn(int key)
+  {
+    return buffer.getInt(keyTurnsStart + key * Integer.BYTES);
+  }
+
+  /**
+   * @return The index of the last entry of the sorted turns starting at the
+   *         given place in the buffer that is at or before the given turn.
+   */
+  private int lastAtOrBefore(int turnsStart, int count, int turn)
+  {
+    int low = 0;
+    int high = count - 1;
+    while (low <= high)
+    {
+      int middle = (low + high) >>> 1;
+      if (buffer.getInt(turnsStart + middle * Integer.BYTES) <= turn)
+      {
+        low = middle + 1;
+      }
+      else
+      {
+        high = middle - 1;
+      }
+    }
+    return high;
+  }
+}
@@ -0,0 +1,52 @@
+package entities;
+
+/**
+ * Moves the player, steps the animation of its cudgel and moves the awake
+ * zombies, then copies where they ended up into their Transform and Velocity
+ * components. Zombies with a reduced level of detail are only moved on their
+ * share of the ticks, and then move as far as they would have on all the ticks
+ * since their last update.
+ */
+public class MovementSystem implements GameSystem
+{
+  private final EntityManager entityManager;
+
+  /**
+   * @param entityManager
+   *          The entity manager whose creatures this system moves.
+   */
+  public MovementSystem(EntityManager entityManager)
+  {
+    this.entityManager = entityManager;
+  }
+
+  @Override
+  public void update(int tick)
+  {
+    EntityWorld world = entityManager.world;
+    Player player = entityManager.player;
+
+    player.tick();
+    player.animateWeapon();
+    world.setTransform(player.id, player.boundingCircle.getTranslateX(),
+        player.boundingCircle.getTranslateZ(), player.angle);
+
+    for (Zombie zombie : entityManager.zombies)
+    {
+      int id = zombie.id;
+      if (world.dormant[id]) continue;
+      Zombie.AiDetail detail = world.aiDetail[id];
+      int stride = detail == Zombie.AiDetail.FAR ? entityManager.farZombieStride : detail.stride;
+      if ((tick + zombie.detailPhase) % stride == 0)
+      {
+        // the ticks that really went by, which is not the stride on the
+        // first update after the zombie changed detail or the stride changed
+        int last = world.lastUpdate[id];
+        zombie.tick(detail, last < 0 ? stride : tick - last);
+        world.lastUpdate[id] = tick;
+      }
+      world.setTransform(id, zombie.zombieCylinder.getTranslateX(),
+          zombie.zombieCylinder.getTranslateZ(), zombie.angle);
+    }
+  }
+}
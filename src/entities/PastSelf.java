@@ -1,9 +1,7 @@
 package entities;
 
-import javafx.scene.Group;
+import game_engine.AnimatedMesh;
 import javafx.scene.shape.Cylinder;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Class that tracks states of all past selves in the single-player co-op game
@@ -13,74 +11,49 @@ import java.util.List;
 public class PastSelf
 {
 
-  private List<Double> walkBehaviorsX = new ArrayList<>();
-  private List<Double> walkBehaviorsZ = new ArrayList<>();
-  private List<Double> actionBehaviors = new ArrayList<>();
+  private Timeline timeline;
+  // the turn of the game the timeline starts on
+  private int startTurn;
 
   private Cylinder boundingCircle = new Cylinder();
   private boolean isZombie = false;
   private int turnWorldEnds;
 
-  //for animation of a past player
-  public Group selfMeshes = new Group();
-  public int currentFrame = 0;
-  private boolean direction = true;
+  //for animation of a past player, set when it is meshed
+  public AnimatedMesh selfMeshes;
+
+  // the id of this past self in the entity world, set when it is added to the
+  // past selves of the game
+  public int id = -1;
 
 
   /**
-   * Constructor takes three Lists, the first of X-axis walking behaviors, the second of Z-axis walking
-   * behaviors, and the final of action behaviors so that these actions can be "replayed" where each index is
-   * the equivalent turn counter in the game. It also takes a boolean value that is true if the new PastSelf
-   * is a Zombie, and false if it is a Player
-   * @param walkBehaviorsX
-   * @param walkBehaviorsZ
-   * @param actionBehaviors
+   * Constructor takes the timeline of a creature, which holds where it walked and the actions it took so that
+   * these actions can be "replayed" where each turn is the equivalent turn counter in the game. The timeline is
+   * shared, not copied. It also takes a boolean value that is true if the new PastSelf is a Zombie, and false if
+   * it is a Player
+   * @param recorder the recorder that logged the creature's timeline
    * @param zomBool set true if PastSelf is a Zombie
    * @author Sarah Salmonson
    */
-  public PastSelf (List<Double> walkBehaviorsX, List<Double> walkBehaviorsZ, List<Double> actionBehaviors, boolean zomBool, int turnIndex)
+  public PastSelf (TimelineRecorder recorder, boolean zomBool, int turnIndex)
   {
-    this.walkBehaviorsX.addAll(walkBehaviorsX);
-    this.walkBehaviorsZ.addAll(walkBehaviorsZ);
-    this.actionBehaviors.addAll(actionBehaviors);
-    this.isZombie = zomBool;
-    this.turnWorldEnds = turnIndex;
+    this(recorder.getTimeline(), recorder.getStartTurn(), zomBool, turnIndex);
   }
 
   /**
-   * Moves the PastSelf and implements the actions it took on its original timeline, like a sad marionette
-   * @param turnIndex the index in array of behavior to replay
-   * @author Sarah Salmonson
+   * Makes a PastSelf that replays the given timeline, e.g. one read from a replay file.
+   * @param timeline the timeline to replay
+   * @param startTurn the turn of the game that the timeline starts on
+   * @param zomBool set true if PastSelf is a Zombie
+   * @param turnIndex the turn this PastSelf's world ends
    */
-  public void replayCreature (int turnIndex)
+  public PastSelf (Timeline timeline, int startTurn, boolean zomBool, int turnIndex)
   {
-
-    if(this.walkBehaviorsX.size() > turnIndex)
-    {
-      this.boundingCircle.setTranslateX(this.walkBehaviorsX.get(turnIndex));
-      this.selfMeshes.setTranslateX(this.walkBehaviorsX.get(turnIndex));
-      this.boundingCircle.setTranslateZ(this.walkBehaviorsZ.get(turnIndex));
-      this.selfMeshes.setTranslateZ(this.walkBehaviorsZ.get(turnIndex));
-    }
-    if(this.actionBehaviors.size() > turnIndex)
-    {
-      if(this.actionBehaviors.get(turnIndex) == -1.0)
-      {
-        this.selfMeshes.setVisible(false);
-        this.boundingCircle.setTranslateX(0);
-        this.boundingCircle.setTranslateZ(0);
-      }
-      else
-      {
-        this.selfMeshes.setVisible(true);
-        this.boundingCircle.setRotate(this.actionBehaviors.get(turnIndex)+180);
-        this.selfMeshes.setRotate(this.actionBehaviors.get(turnIndex)+180);
-      }
-    }
-    if(turnIndex % 2 == 0)
-    {
-      this.nextMesh();
-    }
+    this.timeline = timeline;
+    this.startTurn = startTurn;
+    this.isZombie = zomBool;
+    this.turnWorldEnds = turnIndex;
   }
 
   /**
@@ -106,58 +79,36 @@ public class PastSelf
    */
   public void dispose()
   {
-    walkBehaviorsX.clear();
-    walkBehaviorsZ.clear();
-    actionBehaviors.clear();
+    timeline = null;
     boundingCircle = null;
-    selfMeshes.setVisible(false);
+    if (selfMeshes != null) selfMeshes.setVisible(false);
   }
 
   /**
-   * @author Hector Carrillo and Nick Schrandt
-   *
-   * Sets the next mesh in the animation sequence as visible and the current one as not visible
-   *
-   * note: Taken and adapted from the Zombie class. -Nick
+   * Getter for the turn number this PastSelf's player dies
+   * @return int turnWorldEnds
    */
-  public void nextMesh()
+  public int getTurnWorldEnds()
   {
-    selfMeshes.getChildren().get(currentFrame).setVisible(false);
-    int maxFrame;
-    if(this.isZombie())
-    {
-      maxFrame = 10;
-    }
-    else
-    {
-      maxFrame = 12;
-    }
-    if(currentFrame == maxFrame || currentFrame == 0)
-    {
-      direction = !direction;
-    }
-
-    if(direction) currentFrame++;
-    else currentFrame--;
-    selfMeshes.getChildren().get(currentFrame).setVisible(true);
+    return turnWorldEnds;
   }
 
   /**
-   * Getter for the turn number this PastSelf's player dies
-   * @return int turnWorldEnds
+   * Getter for the turn of the game that this PastSelf's timeline starts on
+   * @return int startTurn
    */
-  public int getTurnWorldEnds()
+  public int getStartTurn()
   {
-    return turnWorldEnds;
+    return startTurn;
   }
 
   /**
-   * Getter for the arraylist of pastself's actionbehaviors
-   * @return List actionBehaviors
+   * Getter for the timeline this PastSelf replays
+   * @return Timeline timeline
    */
-  public List<Double> getActionBehaviors()
+  public Timeline getTimeline()
   {
-    return actionBehaviors;
+    return timeline;
   }
 
 }
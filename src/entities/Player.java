@@ -1,7 +1,5 @@
 package entities;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import game_engine.Attributes;
@@ -36,10 +34,6 @@ public class Player extends Creature
   public static final double SPRINTSPEED = Tile.tileSize/11d;
   public static final double WALKINGSPEED = Tile.tileSize/16d;
 
-  private List<Double> walkBehaviorsX = new ArrayList<>();
-  private List<Double> walkBehaviorsZ = new ArrayList<>();
-  private List<Double> actionBehaviors = new ArrayList<>();
-  
   //entitymanager
   EntityManager entityManager;
   
@@ -50,7 +44,6 @@ public class Player extends Creature
 
   //
   public double strafeVelocity;
-  private int turnCounter = 0;
 
   private double radius = .25;
   
@@ -75,6 +68,8 @@ public class Player extends Creature
   private double stamina=5;
   private double regen=.2;
   private double deltaTime=0;
+  // ticks since the stamina was last updated
+  private int staminaTicks=0;
 
   //Player weapon.
   private Node[] weaponMesh = null;
@@ -82,10 +77,14 @@ public class Player extends Creature
   private final double WEAPON_UPWARD_ANGLE = 30;
   private final double WEAPON_Y_TRANSLATE = -.75;
   public Group swordGroup = new Group();
-  private boolean attacking = false;
-  private boolean pushing = false;
+  // set and animated by the simulation, read by the input handlers
+  private volatile boolean attacking = false;
+  private volatile boolean pushing = false;
   private int attackAnimationTimer = 0;
+  // the pose of the cudgel, published through the frame snapshot
   private double weaponRotationRadius = .4;
+  private double weaponPitch = 0;
+  private double weaponYaw = 0;
   private Rotate xRotate = new Rotate();
   private Rotate yRotate = new Rotate();
   
@@ -113,9 +112,12 @@ public class Player extends Creature
    */
   public Player(double x, double y, double z, PerspectiveCamera camera, EntityManager entityManager, PointLight light)
   {
-    this.hitPoints = 100;
     stepDistance = 3;
     this.entityManager = entityManager;
+    this.world = entityManager.world;
+    this.id = world.spawn(EntityWorld.PLAYER, this);
+    world.timeline[id] = new TimelineRecorder();
+    setHitPoints(100);
     this.xPos = x;
     this.yPos = y;
     this.zPos = z;
@@ -129,8 +131,6 @@ public class Player extends Creature
     this.light = light;
     light.setRotationAxis(Rotate.Y_AXIS);
     boundingCircle = new Cylinder(radius, 1);
-    PlayerStamina staminaCounter=new PlayerStamina();
-    staminaCounter.start();
     boundingCircle.setTranslateX(camera.getTranslateX());
     boundingCircle.setTranslateZ(camera.getTranslateZ());
 
@@ -152,6 +152,7 @@ public class Player extends Creature
 
     lastX = camera.getTranslateX();
     lastZ = camera.getTranslateZ();
+    world.setTransform(id, x, z, angle);
   }
   /**
    * A constructor for a 2D player.
@@ -187,6 +188,23 @@ public class Player extends Creature
     entityManager.zombieHouse.root.getChildren().add(weaponMeshGroup);
   }
 
+  /**
+   * Steps the animation of the cudgel, once per tick. The pose it leaves is
+   * drawn by updateView().
+   */
+  public void animateWeapon()
+  {
+    if(attacking)
+    {
+      animateAttack();
+    }
+
+    if(pushing)
+    {
+      animatePush();
+    }
+  }
+
   /**
    * @author Nick Schrandt
    *
@@ -199,22 +217,21 @@ public class Player extends Creature
     {
       attackAnimationTimer = 0;
       attacking = false;
-      weaponMeshGroup.setRotate(WEAPON_UPWARD_ANGLE);
-      yRotate.setAngle(0.0);
-      xRotate.setAngle(0.0);
+      weaponYaw = 0;
+      weaponPitch = 0;
     }
     else if(attackAnimationTimer < 10)
     {
-      xRotate.setAngle(xRotate.getAngle() - 2);
-      yRotate.setAngle(yRotate.getAngle() - 10);
+      weaponPitch -= 2;
+      weaponYaw -= 10;
     }
     else if(attackAnimationTimer < 25)
     {
-      yRotate.setAngle(yRotate.getAngle() + 10);
+      weaponYaw += 10;
     }
     else if(attackAnimationTimer > 25)
     {
-      yRotate.setAngle(yRotate.getAngle() - 2);
+      weaponYaw -= 2;
     }
     attackAnimationTimer++;
   }
@@ -230,14 +247,13 @@ public class Player extends Creature
     {
       attackAnimationTimer = 0;
       pushing = false;
-      weaponMeshGroup.setRotate(WEAPON_UPWARD_ANGLE);
-      yRotate.setAngle(0.0);
-      xRotate.setAngle(0.0);
+      weaponYaw = 0;
+      weaponPitch = 0;
     }
     else if(attackAnimationTimer < 10)
     {
-      xRotate.setAngle(xRotate.getAngle() - 2);
-      yRotate.setAngle(yRotate.getAngle() - 8);
+      weaponPitch -= 2;
+      weaponYaw -= 8;
     }
     else if(attackAnimationTimer < 30)
     {
@@ -274,7 +290,7 @@ public class Player extends Creature
    * Updates the player values when called from an animation timer
    * Implemented in 3 dimensions
    *
-   * new: Orients the cudgel weapon to always follow the camera in both rotation and position.
+   * Only moves the bounding circle; the camera, light and cudgel follow it in updateView().
    *
    * @author: original code, Nick Schrandt
    *
@@ -302,84 +318,28 @@ public class Player extends Creature
     Box collisionX = entityManager.getWallCollision(tempX);
     Box collisionZ = entityManager.getWallCollision(tempZ);
 
-    //@Nick: Calls the animation method every frame until the animation timer reaches a certain count.
-    if(attacking)
-    {
-      animateAttack();
-    }
-
-    if(pushing)
-    {
-      animatePush();
-    }
-    
     if(turnLeft)
     {
       this.angle -= Attributes.Player_Rotate_sensitivity;
-      this.camera.setRotate(this.angle);
-
-      //@Nick: This sets the new rotation and position of the cudgel when turning left
-      swordGroup.setRotate(this.angle);
-      weaponMeshGroup.setTranslateX(camera.getTranslateX()+ (weaponRotationRadius
-              *Math.sin((angle * Math.PI/180) + (Math.PI/4))));
-      weaponMeshGroup.setTranslateZ(camera.getTranslateZ()+ (weaponRotationRadius
-              *Math.cos((angle * Math.PI/180) + (Math.PI/4))));
     }
     if(turnRight)
     {
       this.angle += Attributes.Player_Rotate_sensitivity;
-      this.camera.setRotate(this.angle);
-      this.light.setRotate(this.angle);
-
-      //@Nick: This sets the new rotation and position of the cudgel when turning right
-      swordGroup.setRotate(this.angle);
-      weaponMeshGroup.setTranslateX(camera.getTranslateX()+ (weaponRotationRadius
-              *Math.sin((angle * Math.PI/180) + (Math.PI/4))));
-      weaponMeshGroup.setTranslateZ(camera.getTranslateZ()+ (weaponRotationRadius
-              *Math.cos((angle * Math.PI/180) + (Math.PI/4))));
     }
     
-    lastX = camera.getTranslateX();
-    lastZ = camera.getTranslateZ();
+    lastX = boundingCircle.getTranslateX();
+    lastZ = boundingCircle.getTranslateZ();
 
     //@Hector added player collision with zombies
     if (collisionX == null && !entityManager.playerCollidesWithZombie(tempX))
     {
-      //@Sarah: this is where camera is moved on X axis
-      camera.setTranslateX(movementX);
-
-      //@Nick: This moves the cudgel with the camera
-      weaponMeshGroup.setTranslateX(camera.getTranslateX()+ (weaponRotationRadius
-              *Math.sin((angle * Math.PI/180) + (Math.PI/4))));
+      //@Sarah: this is where the player is moved on X axis
+      boundingCircle.setTranslateX(movementX);
     } 
     if (collisionZ == null && !entityManager.playerCollidesWithZombie(tempZ))
     {
-      //@Sarah: this is where camera is moved on Z axis
-      camera.setTranslateZ(movementZ);
-
-      //@Nick: This moves the cudgel with the camera
-      weaponMeshGroup.setTranslateZ(camera.getTranslateZ()+ (weaponRotationRadius
-              *Math.cos((angle * Math.PI/180) + (Math.PI/4))));
-    }
-    
-    //@Sarah: this is moving the player's "circle" to the camera's location
-    boundingCircle.setTranslateX(camera.getTranslateX());
-    boundingCircle.setTranslateZ(camera.getTranslateZ());
-
-    //@Sarah: this is logging the player's movement & actions on this tick
-    walkBehaviorsX.add(turnCounter, boundingCircle.getTranslateX());
-    walkBehaviorsZ.add(turnCounter, boundingCircle.getTranslateZ());
-    actionBehaviors.add(turnCounter, angle);
-
-    turnCounter++;
-    
-    //checking for exit collision
-    for (Box box: entityManager.zombieHouse.exits){
-      if (box.getBoundsInParent().intersects(boundingCircle.getBoundsInParent()))
-      {
-        foundExit.set(true);
-        System.out.println("exit");
-      }
+      //@Sarah: this is where the player is moved on Z axis
+      boundingCircle.setTranslateZ(movementZ);
     }
     
     if(shiftPressed.get() && !staminaOut.get())
@@ -397,15 +357,58 @@ public class Player extends Creature
       if(dDown.get())strafeVelocity=-WALKINGSPEED;
     }
     
+    if(++staminaTicks >= Attributes.Frame_Rate)
+    {
+      staminaTicks = 0;
+      updateStamina();
+    }
+
     updateDistance();
+    xPos = boundingCircle.getTranslateX();
+    zPos = boundingCircle.getTranslateZ();
+  }
+
+  /**
+   * Moves the camera, the light and the cudgel to where the player is. Called
+   * by the renderer on the FX thread with the player's place from the latest
+   * frame snapshot, since tick() only moves the bounding circle. The cudgel
+   * is posed as animateWeapon() left it on that tick.
+   *
+   * @author: original code, Nick Schrandt
+   *
+   * @param x
+   *        x coordinate of the player
+   * @param z
+   *        z coordinate of the player
+   * @param viewAngle
+   *        the direction the player is facing
+   * @param weaponPitch
+   *        the angle the cudgel is tilted by its animation
+   * @param weaponYaw
+   *        the angle the cudgel is swung by its animation
+   * @param weaponRotationRadius
+   *        how far the cudgel is held out from the player
+   */
+  public void updateView(double x, double z, double viewAngle, double weaponPitch, double weaponYaw,
+      double weaponRotationRadius)
+  {
+    camera.setTranslateX(x);
+    camera.setTranslateZ(z);
+    camera.setRotate(viewAngle);
     //@Sarah: sets light to camera location
     light.setVisible(true);
-    light.setTranslateX(camera.getTranslateX());
-    light.setTranslateZ(camera.getTranslateZ());
-    //@Sarah: next line of code does literally nothing. Commenting out
-    //light.setRotate(camera.getRotate() - 180);
-    xPos = camera.getTranslateX();
-    zPos = camera.getTranslateZ();
+    light.setTranslateX(x);
+    light.setTranslateZ(z);
+    light.setRotate(viewAngle);
+
+    //@Nick: This sets the new rotation and position of the cudgel
+    xRotate.setAngle(weaponPitch);
+    yRotate.setAngle(weaponYaw);
+    swordGroup.setRotate(viewAngle);
+    weaponMeshGroup.setTranslateX(x + (weaponRotationRadius
+            *Math.sin((viewAngle * Math.PI/180) + (Math.PI/4))));
+    weaponMeshGroup.setTranslateZ(z + (weaponRotationRadius
+            *Math.cos((viewAngle * Math.PI/180) + (Math.PI/4))));
   }
 
   /**
@@ -463,14 +466,14 @@ public class Player extends Creature
   }
 
   /**
-   * Calculates Distance for camera
-   * @return The distance between lastX/Z and Camera.getTranslateX/Z
+   * Calculates Distance for player
+   * @return The distance between lastX/Z and boundingCircle.getTranslateX/Z
    */
   @Override
   public double calculateDistance()
   {
-    double xDist = camera.getTranslateX() - lastX;
-    double zDist = camera.getTranslateZ() - lastZ;
+    double xDist = boundingCircle.getTranslateX() - lastX;
+    double zDist = boundingCircle.getTranslateZ() - lastZ;
     return Math.sqrt((xDist*xDist)+(zDist*zDist));
   }
   
@@ -487,70 +490,36 @@ public class Player extends Creature
   /**
    * 
    * @author Jeffrey McCall 
-   * This class keeps track of player stamina. While the player
-   * is running, the stamina is decremented until it reaches 0. At that time,
-   * the player can't run until the stamina regenerates. This class takes care
-   * of decrementing and regenerating stamina.
-   *
+   * Keeps track of player stamina. While the player is running, the stamina
+   * is decremented until it reaches 0. At that time, the player can't run
+   * until the stamina regenerates. Called once every second of game time from
+   * tick(), so that stamina runs out on the same turn every time a game is
+   * played back.
    */
-  private class PlayerStamina extends Thread
+  private void updateStamina()
   {
-    /**
-     * Once every second, decrement stamina if shift is pressed.
-     * If stamina reaches 0, regenerate stamina at a constant rate
-     * once every second until stamina reaches max of 5. Exit thread if
-     * program is closed. 
-     */
-    @Override
-    public void run()
+    if(shiftPressed.get() && !staminaOut.get())
     {
-      while (gameIsRunning.get() == true)
+      stamina--;
+      if(stamina==0)
       {
-        try
-        {
-          sleep(1000);
-        } catch (InterruptedException e)
-        {
-          e.printStackTrace();
-        }
-        if(shiftPressed.get() && !staminaOut.get())
-        {
-          stamina--;
-          if(stamina==0)
-          {
-            staminaOut.set(true);
-          }
-        }else if(!shiftPressed.get())
-        {
-          deltaTime++;
-          if(((deltaTime*regen)+stamina)<=5)
-          {
-            stamina+=deltaTime*regen;
-          }else
-          {
-            stamina=5;
-            deltaTime=0;
-            staminaOut.set(false);
-          }
-        }
+        staminaOut.set(true);
+      }
+    }else if(!shiftPressed.get())
+    {
+      deltaTime++;
+      if(((deltaTime*regen)+stamina)<=5)
+      {
+        stamina+=deltaTime*regen;
+      }else
+      {
+        stamina=5;
+        deltaTime=0;
+        staminaOut.set(false);
       }
-      System.exit(0);
     }
   }
 
-  /**
-   * @author Nick
-   * @author Sarah Salmonson
-   *
-   * @param damage amount of damage done to the player
-   *
-   *This method is called when a zombie attacks a player. Not fully implemented yet.
-   */
-  public void getHit(int damage)
-  {
-    this.hitPoints -= damage;
-  }
-
   /**
    * @author Nick Schrandt
    *
@@ -573,6 +542,30 @@ public class Player extends Creature
     return pushing;
   }
 
+  /**
+   * @return The angle the cudgel is tilted by its animation.
+   */
+  public double getWeaponPitch()
+  {
+    return weaponPitch;
+  }
+
+  /**
+   * @return The angle the cudgel is swung by its animation.
+   */
+  public double getWeaponYaw()
+  {
+    return weaponYaw;
+  }
+
+  /**
+   * @return How far the cudgel is held out from the player.
+   */
+  public double getWeaponRotationRadius()
+  {
+    return weaponRotationRadius;
+  }
+
   /**
    * @author Nick Schrandt
    *
@@ -604,16 +597,6 @@ public class Player extends Creature
      return swordGroup;
    }
 
-  /**
-   * Public getter for Player hitpoints stat
-   * @return hitPoints the double value of player's current HP
-   * @author Sarah Salmonson
-   */
-  public double getHitPoints()
-  {
-    return this.hitPoints;
-  }
-
   /**
    * Public setter for Player death status.
    * @author Nick Schrandt
@@ -621,36 +604,6 @@ public class Player extends Creature
   public void setIsDead()
   {
     this.isDead.set(true);
-    actionBehaviors.add(turnCounter, -1.0);
-  }
-
-  /**
-   * Public getter for player's walk behaviors on X dimension
-   * @return List of walk coordinates on X axis
-   * @author Sarah Salmonson
-   */
-  public List<Double> getWalkBehaviorsX()
-  {
-    return walkBehaviorsX;
-  }
-
-  /**
-   * Public getter for player's walk behaviors on Z dimension
-   * @return List of walk coordinates on Z axis
-   * @author Sarah Salmonson
-   */
-  public List<Double> getWalkBehaviorsZ()
-  {
-    return walkBehaviorsZ;
-  }
-
-  /**
-   * Public getter for player's action behaviors
-   * @return List of action behaviors
-   * @author Sarah Salmonson
-   */
-  public List<Double> getActionBehaviors()
-  {
-    return actionBehaviors;
+    getTimeline().markDead();
   }
-}
\ No newline at end of file
+}
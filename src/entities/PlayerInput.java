@@ -0,0 +1,21 @@
+package entities;
+
+/**
+ * The things the player can do to the simulation. The input handlers send
+ * these to EntityManager.input(), which applies them at the start of the
+ * next tick, so they can be logged with the turn they happened on and played
+ * back on the same turns later.
+ *
+ * Each input has one value: 1 for a key that went down and 0 for one that
+ * came up, the angle turned for ROTATE, the damage taken for HIT, and the
+ * turns to rewind the past selves by for REPLAY_REWIND (negative to skip
+ * ahead).
+ *
+ * The replay keys change where the past selves are, so they are inputs too.
+ * New inputs go at the end, since logs store the index of each input.
+ */
+public enum PlayerInput
+{
+  FORWARD, BACKWARD, STRAFE_LEFT, STRAFE_RIGHT, SPRINT, TURN_LEFT, TURN_RIGHT, ROTATE, ATTACK, PUSH, HIT,
+  REPLAY_REWIND, REPLAY_SPEED, REPLAY_LIVE
+}
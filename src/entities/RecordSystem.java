@@ -0,0 +1,32 @@
+package entities;
+
+/**
+ * Logs the Transform of every recorded entity that is awake into its
+ * TimelineRecorder, one entry per turn. Sleeping zombies are logged when they
+ * wake up.
+ */
+public class RecordSystem implements GameSystem
+{
+  private final EntityManager entityManager;
+
+  /**
+   * @param entityManager
+   *          The entity manager whose world this system records.
+   */
+  public RecordSystem(EntityManager entityManager)
+  {
+    this.entityManager = entityManager;
+  }
+
+  @Override
+  public void update(int tick)
+  {
+    EntityWorld world = entityManager.world;
+
+    for (int id = 0; id < world.size(); id++)
+    {
+      if (world.timeline[id] == null || world.dormant[id]) continue;
+      world.timeline[id].record(world.x[id], world.z[id], world.angle[id]);
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package entities;
+
+/**
+ * Steps the animations and copies the state of the world into the next
+ * FrameSnapshot for the renderer: where each mesh and health bar goes, which
+ * frame it shows and whether it is visible. This system does not touch the
+ * scene graph itself, so the simulation can run off of the FX thread.
+ */
+public class RenderSyncSystem implements GameSystem
+{
+  // the creatures walk one frame every other tick
+  private static final double FRAMES_PER_TICK = .5;
+
+  private final EntityManager entityManager;
+  private long frameNumber = 0;
+
+  /**
+   * @param entityManager
+   *          The entity manager whose entities this system draws.
+   */
+  public RenderSyncSystem(EntityManager entityManager)
+  {
+    this.entityManager = entityManager;
+  }
+
+  @Override
+  public void update(int tick)
+  {
+    EntityWorld world = entityManager.world;
+
+    // the animations move on by part of a frame every interval ticks, and
+    // the renderer blends the frames around where they are
+    int interval = entityManager.animationInterval;
+    if (tick % interval == 0)
+    {
+      double step = FRAMES_PER_TICK * interval;
+      for (Zombie zombie : entityManager.zombies)
+      {
+        int id = zombie.id;
+        if (world.dormant[id] || world.meshes[id] == null) continue;
+        if (world.aiDetail[id] != Zombie.AiDetail.FAR)
+        {
+          world.nextFrame(id, step);
+        }
+      }
+      for (PastSelf pastSelf : entityManager.pastSelves)
+      {
+        if (world.meshes[pastSelf.id] != null)
+        {
+          world.nextFrame(pastSelf.id, step);
+        }
+      }
+    }
+    publish(tick);
+  }
+
+  /**
+   * Fills the back snapshot from the world and publishes it. Sleeping zombies
+   * are left out, so their nodes stay as they were.
+   *
+   * @param tick
+   *          The number of ticks the game has been running.
+   */
+  public void publish(int tick)
+  {
+    EntityWorld world = entityManager.world;
+    Player player = entityManager.player;
+    FrameSnapshot snapshot = entityManager.snapshots.getBack();
+    snapshot.clear();
+
+    snapshot.frameNumber = ++frameNumber;
+    snapshot.tick = tick;
+    snapshot.playerX = world.x[player.id];
+    snapshot.playerZ = world.z[player.id];
+    snapshot.playerAngle = world.angle[player.id];
+    snapshot.playerHitPoints = (int) player.getHitPoints();
+    snapshot.weaponPitch = player.getWeaponPitch();
+    snapshot.weaponYaw = player.getWeaponYaw();
+    snapshot.weaponRotationRadius = player.getWeaponRotationRadius();
+
+    for (Zombie zombie : entityManager.zombies)
+    {
+      int id = zombie.id;
+      if (world.dormant[id] || world.meshes[id] == null) continue;
+      // zombies always turn to face the player
+      snapshot.add(world.meshes[id], zombie.getHealthBar(), world.x[id], world.z[id],
+          zombie.getAngleToPlayer(), world.frame[id], true, zombie.getHealthFraction());
+    }
+    for (PastSelf pastSelf : entityManager.pastSelves)
+    {
+      int id = pastSelf.id;
+      if (world.meshes[id] == null) continue;
+      snapshot.add(world.meshes[id], null, world.x[id], world.z[id], world.angle[id],
+          world.frame[id], world.visible[id], 1);
+    }
+    entityManager.snapshots.publish();
+  }
+}
@@ -0,0 +1,131 @@
+package entities;
+
+/**
+ * Decides which turn the past selves are replaying. Normally they replay the
+ * turn the game is on, but for debugging the replay can be taken off of the
+ * game's turn: jumped to any turn, rewound, and played faster, slower or
+ * backwards, for every past self at once. Timelines can be read at any turn,
+ * so a jump costs no more than a normal step.
+ *
+ * Past selves only expire, and past zombies only break free, while the
+ * replay follows the game.
+ */
+public class ReplayController
+{
+  private final EntityManager entityManager;
+  private boolean live = true;
+  private int turn = 0;
+  // turns the replay moves per tick when it is not live
+  private int speed = 1;
+
+  /**
+   * @param entityManager
+   *          The entity manager whose past selves are replayed.
+   */
+  public ReplayController(EntityManager entityManager)
+  {
+    this.entityManager = entityManager;
+  }
+
+  /**
+   * Moves the replay on by one tick.
+   *
+   * @param gameTurn
+   *          The turn the game is on.
+   * @return The turn to replay.
+   */
+  public int advance(int gameTurn)
+  {
+    if (live)
+    {
+      turn = gameTurn;
+    }
+    else
+    {
+      turn = Math.max(0, Math.min(getLastTurn(), turn + speed));
+    }
+    return turn;
+  }
+
+  /**
+   * Takes the replay off of the game's turn and jumps to the given turn.
+   *
+   * @param newTurn
+   *          The turn to replay next.
+   */
+  public void jump(int newTurn)
+  {
+    live = false;
+    turn = Math.max(0, Math.min(getLastTurn(), newTurn)) - speed;
+  }
+
+  /**
+   * Jumps back the given number of turns.
+   *
+   * @param turns
+   *          How far to rewind.
+   */
+  public void rewind(int turns)
+  {
+    jump(turn - turns);
+  }
+
+  /**
+   * Takes the replay off of the game's turn and plays it at the given speed.
+   *
+   * @param turnsPerTick
+   *          How many turns the replay moves each tick; negative plays it
+   *          backwards and 0 holds it still.
+   */
+  public void setSpeed(int turnsPerTick)
+  {
+    live = false;
+    speed = turnsPerTick;
+  }
+
+  /**
+   * @return How many turns the replay moves each tick when it is not live.
+   */
+  public int getSpeed()
+  {
+    return speed;
+  }
+
+  /**
+   * Puts the replay back on the game's turn at normal speed.
+   */
+  public void followGame()
+  {
+    live = true;
+    speed = 1;
+  }
+
+  /**
+   * @return true if the replay is on the game's turn.
+   */
+  public boolean isLive()
+  {
+    return live;
+  }
+
+  /**
+   * @return The last turn replayed.
+   */
+  public int getTurn()
+  {
+    return turn;
+  }
+
+  /**
+   * @return The last turn any past self has a record of.
+   */
+  public int getLastTurn()
+  {
+    int last = 0;
+    for (PastSelf pastSelf : entityManager.pastSelves)
+    {
+      last = Math.max(last, pastSelf.getStartTurn() + pastSelf.getTimeline().size());
+    }
+    return last;
+  }
+}
@@ -0,0 +1,317 @@
+package entities;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import levels.Tile;
+
+/**
+ * A file of the past selves of one game, so that a run can be kept, shared
+ * and replayed later on the same map. The file is written as the game goes:
+ * the header when the game starts, a block each time a past self is made, and
+ * the index when the game ends. A file whose game never ended has no index,
+ * and its blocks are found by walking them from the header.
+ *
+ * <pre>
+ * header: int MAGIC, int VERSION, long seed, int difficulty,
+ *         int width, int height, byte[width * height] tile types
+ * block:  byte isZombie, byte ended, int startTurn, int turnWorldEnds, int size,
+ *         int keyCount, int runCount, the timeline as CompressedTimeline.encode()
+ *         writes it
+ * index:  int count, long[count] block offsets
+ * footer: long index offset, int END_MAGIC
+ * </pre>
+ *
+ * Timelines are stored in the compressed form they are recorded in, about
+ * two bytes per turn. Files are read through a MappedByteBuffer, and the past
+ * selves read from it decode their turns straight out of the mapping.
+ */
+public class ReplayFile
+{
+  private static final int MAGIC = 0x5A485250; // "ZHRP"
+  private static final int END_MAGIC = 0x5A484E44; // "ZHND"
+  private static final int VERSION = 3;
+  // the header up to the tile types
+  private static final int HEADER_BYTES = 5 * Integer.BYTES + Long.BYTES;
+  private static final int FOOTER_BYTES = Long.BYTES + Integer.BYTES;
+  private static final int BLOCK_HEADER_BYTES = 2 + 5 * Integer.BYTES;
+
+  private ReplayFile()
+  {
+  }
+
+  /**
+   * Reads the seed out of the header of a replay file, without mapping the
+   * rest of it.
+   *
+   * @param path
+   *          The replay file.
+   * @return The seed the map was generated from.
+   * @throws IOException
+   *           if the file cannot be read or is not a replay file
+   */
+  public static long readSeed(Path path) throws IOException
+  {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+    {
+      while (header.hasRemaining())
+      {
+        if (channel.read(header) < 0) break;
+      }
+    }
+    checkHeader(header, header.position(), path);
+    return header.getLong(8);
+  }
+
+  /**
+   * @throws IOException
+   *           if the header is not that of a replay file of this version
+   */
+  private static void checkHeader(ByteBuffer buffer, int length, Path path) throws IOException
+  {
+    if (length < HEADER_BYTES || buffer.getInt(0) != MAGIC)
+    {
+      throw new IOException("Not a replay file: " + path);
+    }
+    if (buffer.getInt(4) != VERSION)
+    {
+      throw new IOException("Unknown replay file version " + buffer.getInt(4) + ": " + path);
+    }
+  }
+
+  /**
+   * Writes the past selves of a game to a replay file as they are made.
+   */
+  public static class Writer
+  {
+    private final FileChannel channel;
+    private final List<Long> offsets = new ArrayList<>();
+
+    /**
+     * Creates the file, replacing any file of the same name, and writes the
+     * header.
+     *
+     * @param path
+     *          Where to write the file.
+     * @param seed
+     *          The seed the map was generated from.
+     * @param difficulty
+     *          The difficulty the map was generated for.
+     * @param gameBoard
+     *          The map.
+     * @throws IOException
+     *           if the file cannot be written
+     */
+    public Writer(Path path, long seed, int difficulty, Tile[][] gameBoard) throws IOException
+    {
+      channel = FileChannel.open(path, StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+      int height = gameBoard.length;
+      int width = gameBoard[0].length;
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + width * height);
+      header.putInt(MAGIC).putInt(VERSION).putLong(seed).putInt(difficulty);
+      header.putInt(width).putInt(height);
+      for (Tile[] line : gameBoard)
+      {
+        for (Tile tile : line)
+        {
+          header.put(tileType(tile));
+        }
+      }
+      write(header);
+    }
+
+    /**
+     * Appends the timeline of a past self.
+     *
+     * @param pastSelf
+     *          The past self to write.
+     * @throws IOException
+     *           if the file cannot be written
+     */
+    public void write(PastSelf pastSelf) throws IOException
+    {
+      // timelines recorded in another encoding are compressed to be written
+      CompressedTimeline timeline = CompressedTimeline.of(pastSelf.getTimeline());
+      ByteBuffer block = ByteBuffer.allocate(BLOCK_HEADER_BYTES + timeline.encodedBytes());
+      block.put((byte) (pastSelf.isZombie() ? 1 : 0));
+      block.put((byte) (timeline.isEnded() ? 1 : 0));
+      block.putInt(pastSelf.getStartTurn()).putInt(pastSelf.getTurnWorldEnds()).putInt(timeline.size());
+      block.putInt(timeline.getKeyframeCount()).putInt(timeline.getRunCount());
+      timeline.encode(block);
+      offsets.add(channel.position());
+      write(block);
+    }
+
+    /**
+     * Writes the index and closes the file.
+     *
+     * @throws IOException
+     *           if the file cannot be written
+     */
+    public void close() throws IOException
+    {
+      long indexOffset = channel.position();
+      ByteBuffer index = ByteBuffer.allocate(Integer.BYTES + offsets.size() * Long.BYTES + FOOTER_BYTES);
+      index.putInt(offsets.size());
+      for (long offset : offsets)
+      {
+        index.putLong(offset);
+      }
+      index.putLong(indexOffset).putInt(END_MAGIC);
+      write(index);
+      channel.close();
+    }
+
+    private void write(ByteBuffer buffer) throws IOException
+    {
+      buffer.flip();
+      while (buffer.hasRemaining())
+      {
+        channel.write(buffer);
+      }
+    }
+  }
+
+  /**
+   * A replay file mapped into memory.
+   */
+  public static class Reader
+  {
+    private final MappedByteBuffer buffer;
+    private final long seed;
+    private final int difficulty;
+    private final int width;
+    private final int height;
+    private final int tilesStart;
+    private final int blocksStart;
+
+    /**
+     * Maps the file and reads its header.
+     *
+     * @param path
+     *          The replay file.
+     * @throws IOException
+     *           if the file cannot be read or is not a replay file
+     */
+    public Reader(Path path) throws IOException
+    {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+      {
+        // the mapping stays valid after the channel is closed
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+      checkHeader(buffer, buffer.limit(), path);
+      seed = buffer.getLong(8);
+      difficulty = buffer.getInt(16);
+      width = buffer.getInt(20);
+      height = buffer.getInt(24);
+      tilesStart = HEADER_BYTES;
+      blocksStart = tilesStart + width * height;
+    }
+
+    /**
+     * @return The seed the map was generated from.
+     */
+    public long getSeed()
+    {
+      return seed;
+    }
+
+    /**
+     * @return The difficulty the map was generated for.
+     */
+    public int getDifficulty()
+    {
+      return difficulty;
+    }
+
+    /**
+     * @param gameBoard
+     *          A map.
+     * @return true if the replay was recorded on this map.
+     */
+    public boolean isRecordedOn(Tile[][] gameBoard)
+    {
+      if (gameBoard.length != height || gameBoard[0].length != width) return false;
+      int index = tilesStart;
+      for (Tile[] line : gameBoard)
+      {
+        for (Tile tile : line)
+        {
+          if (buffer.get(index++) != tileType(tile)) return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Makes a past self for each block of the file. Their timelines are read
+     * from the mapping.
+     *
+     * @return The past selves, in the order they were written.
+     */
+    public List<PastSelf> readPastSelves()
+    {
+      List<PastSelf> pastSelves = new ArrayList<>();
+      for (int offset : blockOffsets())
+      {
+        boolean isZombie = buffer.get(offset) != 0;
+        boolean ended = buffer.get(offset + 1) != 0;
+        int startTurn = buffer.getInt(offset + 2);
+        int turnWorldEnds = buffer.getInt(offset + 6);
+        int size = buffer.getInt(offset + 10);
+        int keyCount = buffer.getInt(offset + 14);
+        int runCount = buffer.getInt(offset + 18);
+        Timeline timeline = new MappedTimeline(buffer, offset + BLOCK_HEADER_BYTES, size, keyCount, runCount, ended);
+        pastSelves.add(new PastSelf(timeline, startTurn, isZombie, turnWorldEnds));
+      }
+      return pastSelves;
+    }
+
+    /**
+     * Reads the block offsets from the index, or walks the blocks if the file
+     * has no index.
+     */
+    private List<Integer> blockOffsets()
+    {
+      List<Integer> offsets = new ArrayList<>();
+      int end = buffer.limit();
+      if (end - blocksStart >= FOOTER_BYTES && buffer.getInt(end - Integer.BYTES) == END_MAGIC)
+      {
+        int index = (int) buffer.getLong(end - FOOTER_BYTES);
+        int count = buffer.getInt(index);
+        for (int i = 0; i < count; i++)
+        {
+          offsets.add((int) buffer.getLong(index + Integer.BYTES + i * Long.BYTES));
+        }
+        return offsets;
+      }
+      int offset = blocksStart;
+      while (offset + BLOCK_HEADER_BYTES <= end)
+      {
+        int keyCount = buffer.getInt(offset + 14);
+        int runCount = buffer.getInt(offset + 18);
+        int next = offset + BLOCK_HEADER_BYTES + keyCount * (Integer.BYTES + 2 * Float.BYTES)
+            + runCount * (Integer.BYTES + Float.BYTES) + 2 * buffer.getInt(offset + 10);
+        // the last block may have been cut off
+        if (next > end) break;
+        offsets.add(offset);
+        offset = next;
+      }
+      return offsets;
+    }
+  }
+
+  private static byte tileType(Tile tile)
+  {
+    return (byte) (tile.type == null ? -1 : tile.type.ordinal());
+  }
+}
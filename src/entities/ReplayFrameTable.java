@@ -0,0 +1,141 @@
+package entities;
+
+import java.util.List;
+
+import game_engine.Attributes;
+
+/**
+ * A window of the timelines of all past selves, unpacked into one table
+ * around the turn being replayed. Each turn is one row, and each past self is
+ * a column of three floats in that row: x, z and the angle it faces. A past
+ * self that is not there on a turn (not made yet, or dead) has NaN for its
+ * angle. Past the end of its timeline a past self keeps the last cell it had,
+ * so it stays where it was.
+ *
+ * Only WINDOW_TURNS rows are unpacked at a time, so the table stays the same
+ * small size however long the lives were, and the timelines keep their
+ * compressed or mapped form. When the replay moves out of the window, the
+ * window is refilled from the turn it moved to, reading each timeline in
+ * order.
+ *
+ * Replaying a turn is one pass over one contiguous row, whatever kind of
+ * timeline each past self was recorded in.
+ */
+public class ReplayFrameTable
+{
+  static final int X = 0;
+  static final int Z = 1;
+  static final int ANGLE = 2;
+  static final int CELL = 3;
+
+  private static final int WINDOW_TURNS = (int) (4 * Attributes.Frame_Rate);
+
+  private final PastSelf[] pastSelves;
+  private final int columns;
+  private final int rows;
+  private final float[] cells;
+  // the turn of the first row of the window, or -1 before it is filled
+  private int firstTurn = -1;
+
+  /**
+   * Sets up the table for the past selves. Nothing is unpacked until the
+   * first row is asked for.
+   *
+   * @param pastSelves
+   *          The past selves, one column each, in order.
+   */
+  public ReplayFrameTable(List<PastSelf> pastSelves)
+  {
+    this.pastSelves = pastSelves.toArray(new PastSelf[0]);
+    columns = this.pastSelves.length;
+    int lastTurn = 0;
+    for (PastSelf pastSelf : this.pastSelves)
+    {
+      // one more row for the turn of death
+      lastTurn = Math.max(lastTurn, pastSelf.getStartTurn() + pastSelf.getTimeline().size());
+    }
+    rows = lastTurn + 1;
+    cells = new float[Math.min(rows, WINDOW_TURNS) * columns * CELL];
+  }
+
+  /**
+   * @return The number of past selves in the table.
+   */
+  public int getColumns()
+  {
+    return columns;
+  }
+
+  /**
+   * Moves the window to the turn if it is not in it.
+   *
+   * @param turn
+   *          A turn of the game.
+   * @return Where the row of the turn starts in getCells(). Turns after the
+   *         last row use the last row.
+   */
+  public int rowStart(int turn)
+  {
+    int row = Math.max(0, Math.min(rows - 1, turn));
+    int windowRows = cells.length / Math.max(1, columns * CELL);
+    if (firstTurn < 0 || row < firstTurn || row >= firstTurn + windowRows)
+    {
+      // the window never runs past the last row
+      fill(Math.max(0, Math.min(row, rows - windowRows)), windowRows);
+    }
+    return (row - firstTurn) * columns * CELL;
+  }
+
+  /**
+   * @return The turn of the first row in getCells(). It changes when the
+   *         window moves, and row starts from before then no longer hold.
+   */
+  public int getFirstTurn()
+  {
+    return firstTurn;
+  }
+
+  /**
+   * @return The cells of the window, row after row. Not to be changed.
+   */
+  public float[] getCells()
+  {
+    return cells;
+  }
+
+  private void fill(int first, int windowRows)
+  {
+    firstTurn = first;
+    for (int column = 0; column < columns; column++)
+    {
+      fillColumn(column, pastSelves[column], windowRows);
+    }
+  }
+
+  private void fillColumn(int column, PastSelf pastSelf, int windowRows)
+  {
+    Timeline timeline = pastSelf.getTimeline();
+    int start = pastSelf.getStartTurn();
+    int size = timeline.size();
+    for (int row = 0; row < windowRows; row++)
+    {
+      int turn = firstTurn + row - start;
+      float x = 0;
+      float z = 0;
+      float angle = Float.NaN;
+      if (turn >= 0 && size > 0)
+      {
+        // past the end, the last turn recorded is kept
+        int recorded = Math.min(turn, size - 1);
+        x = (float) timeline.getX(recorded);
+        z = (float) timeline.getZ(recorded);
+        double action = turn < size || !timeline.isEnded() ? timeline.getAction(recorded) : Timeline.DEAD;
+        angle = action == Timeline.DEAD ? Float.NaN : (float) (action + 180);
+      }
+      int cell = (row * columns + column) * CELL;
+      cells[cell + X] = x;
+      cells[cell + Z] = z;
+      cells[cell + ANGLE] = angle;
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package entities;
+
+import javafx.scene.shape.Cylinder;
+
+/**
+ * Moves the past selves to where they were on this turn of their timelines,
+ * like a sad marionette. A past self that reaches the turn its world ended
+ * publishes PAST_SELF_EXPIRED.
+ *
+ * The timelines are unpacked a window of turns at a time into a
+ * ReplayFrameTable, which is set up again when the past selves change, that
+ * is when a new life starts. Each tick then sweeps the row of the turn and
+ * only writes the past selves that moved, turned, appeared or disappeared
+ * since the row replayed before it. When the window moves every past self is
+ * written once.
+ */
+public class ReplaySystem implements GameSystem
+{
+  private final EntityManager entityManager;
+
+  private ReplayFrameTable table;
+  // the row start of the turn replayed last, or -1 to write every past self
+  private int lastRow = -1;
+  // the first turn of the table's window when lastRow was swept
+  private int lastFirstTurn = -1;
+  // the ids and bounding circles of the past selves, in column order
+  private int[] ids = new int[0];
+  private Cylinder[] boundingCircles = new Cylinder[0];
+
+  /**
+   * @param entityManager
+   *          The entity manager whose past selves this system replays.
+   */
+  public ReplaySystem(EntityManager entityManager)
+  {
+    this.entityManager = entityManager;
+  }
+
+  /**
+   * Has the table rebuilt before the next replay. Called when past selves
+   * are added or removed.
+   */
+  public void invalidate()
+  {
+    table = null;
+  }
+
+  @Override
+  public void update(int tick)
+  {
+    int turn = entityManager.replay.advance(entityManager.turnCounter);
+    if (table == null)
+    {
+      build();
+    }
+    int row = table.rowStart(turn);
+    if (table.getFirstTurn() != lastFirstTurn)
+    {
+      // the last row is no longer in the window
+      lastFirstTurn = table.getFirstTurn();
+      lastRow = -1;
+    }
+    sweep(entityManager.world, row);
+
+    if (entityManager.replay.isLive())
+    {
+      for (PastSelf pastSelf : entityManager.pastSelves)
+      {
+        if (pastSelf.getTurnWorldEnds() == turn)
+        {
+          entityManager.events.publish(SimulationEvents.Type.PAST_SELF_EXPIRED, pastSelf);
+        }
+      }
+    }
+  }
+
+  private void build()
+  {
+    table = new ReplayFrameTable(entityManager.pastSelves);
+    int columns = table.getColumns();
+    ids = new int[columns];
+    boundingCircles = new Cylinder[columns];
+    for (int column = 0; column < columns; column++)
+    {
+      PastSelf pastSelf = entityManager.pastSelves.get(column);
+      ids[column] = pastSelf.id;
+      boundingCircles[column] = pastSelf.getBoundingCircle();
+    }
+    lastRow = -1;
+  }
+
+  /**
+   * Puts every past self that changed since the last row replayed where the
+   * given row says it is.
+   */
+  private void sweep(EntityWorld world, int row)
+  {
+    if (row == lastRow) return;
+    float[] cells = table.getCells();
+    for (int column = 0, cell = row; column < ids.length; column++, cell += ReplayFrameTable.CELL)
+    {
+      float x = cells[cell + ReplayFrameTable.X];
+      float z = cells[cell + ReplayFrameTable.Z];
+      float angle = cells[cell + ReplayFrameTable.ANGLE];
+      if (lastRow >= 0)
+      {
+        int last = lastRow + cell - row;
+        if (x == cells[last + ReplayFrameTable.X] && z == cells[last + ReplayFrameTable.Z]
+            && Float.floatToIntBits(angle) == Float.floatToIntBits(cells[last + ReplayFrameTable.ANGLE]))
+        {
+          continue;
+        }
+      }
+
+      int id = ids[column];
+      Cylinder boundingCircle = boundingCircles[column];
+      world.x[id] = x;
+      world.z[id] = z;
+      if (Float.isNaN(angle))
+      {
+        world.visible[id] = false;
+        boundingCircle.setTranslateX(0);
+        boundingCircle.setTranslateZ(0);
+      }
+      else
+      {
+        world.visible[id] = true;
+        world.angle[id] = angle;
+        boundingCircle.setTranslateX(x);
+        boundingCircle.setTranslateZ(z);
+        boundingCircle.setRotate(angle);
+      }
+    }
+    lastRow = row;
+  }
+}
@@ -0,0 +1,108 @@
+package entities;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+
+/**
+ * A small event bus for things that happen in the simulation. Whoever causes
+ * an event publishes it once, and the listeners that care about it react to
+ * it once, instead of every listener polling the state of every creature on
+ * every tick.
+ *
+ * Published events are queued and handed out when dispatch() is called.
+ * EntityManager dispatches after every system of the tick, so the reactions
+ * to an event happen before the next system runs. Events published while
+ * dispatching are handed out in the same dispatch.
+ */
+public class SimulationEvents
+{
+  public enum Type
+  {
+    // a zombie started going after the player, the source is the zombie
+    PLAYER_DETECTED,
+    // the player killed a zombie, the source is the zombie
+    ZOMBIE_KILLED,
+    // a zombie hurt the player, the source is the player
+    PLAYER_HIT,
+    // a past self reached the end of its timeline, the source is the past self
+    PAST_SELF_EXPIRED
+  }
+
+  /**
+   * Reacts to events of the types it was subscribed to.
+   */
+  public interface Listener
+  {
+    /**
+     * @param type
+     *          What happened.
+     * @param source
+     *          The creature or past self it happened to.
+     */
+    void onEvent(Type type, Object source);
+  }
+
+  private final EnumMap<Type, List<Listener>> listeners = new EnumMap<>(Type.class);
+  private final List<Type> queuedTypes = new ArrayList<>();
+  private final List<Object> queuedSources = new ArrayList<>();
+
+  /**
+   * @param type
+   *          The type of event to listen to.
+   * @param listener
+   *          Called once for every event of the type.
+   */
+  public void subscribe(Type type, Listener listener)
+  {
+    List<Listener> list = listeners.get(type);
+    if (list == null)
+    {
+      list = new ArrayList<>();
+      listeners.put(type, list);
+    }
+    list.add(listener);
+  }
+
+  /**
+   * Queues an event to be handed out on the next dispatch.
+   *
+   * @param type
+   *          What happened.
+   * @param source
+   *          The creature or past self it happened to.
+   */
+  public void publish(Type type, Object source)
+  {
+    queuedTypes.add(type);
+    queuedSources.add(source);
+  }
+
+  /**
+   * Hands every queued event to its listeners, in the order they were
+   * published.
+   */
+  public void dispatch()
+  {
+    for (int i = 0; i < queuedTypes.size(); i++)
+    {
+      List<Listener> list = listeners.get(queuedTypes.get(i));
+      if (list == null) continue;
+      for (Listener listener : list)
+      {
+        listener.onEvent(queuedTypes.get(i), queuedSources.get(i));
+      }
+    }
+    queuedTypes.clear();
+    queuedSources.clear();
+  }
+
+  /**
+   * Throws away the events that have not been handed out yet.
+   */
+  public void clear()
+  {
+    queuedTypes.clear();
+    queuedSources.clear();
+  }
+}
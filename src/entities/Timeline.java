@@ -0,0 +1,84 @@
+package entities;
+
+/**
+ * What a creature did on every turn of its life: where it stood and the angle
+ * it was facing. A timeline is append-only, so a PastSelf can replay the very
+ * timeline that was recorded instead of a copy of it. Turns can be read in
+ * any order, in constant or logarithmic time, so a replay can jump to any
+ * turn.
+ *
+ * Once a creature dies its timeline is ended: nothing more is appended, and
+ * the turn after the last recorded one has the action DEAD.
+ */
+public interface Timeline
+{
+  // the action of a turn on which the creature was dead or not yet created
+  double DEAD = -1.0;
+
+  /**
+   * Appends one turn. Does nothing once the timeline is ended.
+   *
+   * @param x
+   *          x coordinate of the creature on this turn
+   * @param z
+   *          z coordinate of the creature on this turn
+   * @param action
+   *          the angle the creature is facing on this turn, or DEAD
+   */
+  void append(double x, double z, double action);
+
+  /**
+   * Appends turns on which the creature stood still where it was on the last
+   * turn recorded, facing the same way, as when a creature wakes up after
+   * sleeping. Much cheaper than appending the turns one at a time. Does
+   * nothing if no turn has been recorded yet or the timeline is ended.
+   *
+   * @param turns
+   *          The number of turns to append.
+   */
+  void hold(int turns);
+
+  /**
+   * Ends the timeline on the turn after the last one recorded.
+   */
+  void end();
+
+  /**
+   * @return true if the creature died
+   */
+  boolean isEnded();
+
+  /**
+   * @return The number of turns recorded.
+   */
+  int size();
+
+  /**
+   * @param turn
+   *          A turn before size().
+   * @return The x coordinate of the creature on the turn.
+   */
+  double getX(int turn);
+
+  /**
+   * @param turn
+   *          A turn before size().
+   * @return The z coordinate of the creature on the turn.
+   */
+  double getZ(int turn);
+
+  /**
+   * @param turn
+   *          The turn to check.
+   * @return true if the timeline says what the creature did on the turn:
+   *         any recorded turn, and the turn of death of an ended timeline.
+   */
+  boolean hasAction(int turn);
+
+  /**
+   * @param turn
+   *          A turn for which hasAction is true.
+   * @return The angle the creature faced on the turn, or DEAD.
+   */
+  double getAction(int turn);
+}
@@ -0,0 +1,117 @@
+package entities;
+
+import game_engine.Attributes;
+
+/**
+ * The TimelineRecorder component. Records what a creature does on every turn
+ * of its life into a Timeline, so that it can be replayed later as a
+ * PastSelf. The timeline starts on the turn the creature was created, so
+ * turn t of the timeline is turn getStartTurn() + t of the game.
+ */
+public class TimelineRecorder
+{
+  private final Timeline timeline = newTimeline();
+  private int startTurn = 0;
+
+  /**
+   * Logs one turn. Does nothing once the creature is dead.
+   *
+   * @param x
+   *          x coordinate of the creature on this turn
+   * @param z
+   *          z coordinate of the creature on this turn
+   * @param action
+   *          the angle the creature is facing on this turn
+   */
+  public void record(double x, double z, double action)
+  {
+    timeline.append(x, z, action);
+  }
+
+  /**
+   * Logs the creature standing still for every turn up to the given one, in
+   * a single step however long it slept.
+   *
+   * @param turn
+   *          The turn to catch up to.
+   */
+  public void catchUp(int turn)
+  {
+    if (timeline.size() == 0)
+    {
+      // nothing logged yet, so the creature shows up from here on
+      startAt(turn);
+      return;
+    }
+    if (getTurn() < turn)
+    {
+      timeline.hold(turn - getTurn());
+    }
+  }
+
+  /**
+   * Starts the timeline of a creature made in the middle of a game on the
+   * current turn. Nothing is stored for the turns before it. Does nothing
+   * once a turn has been logged.
+   *
+   * @param turn
+   *          The turn the creature was created on.
+   */
+  public void startAt(int turn)
+  {
+    if (timeline.size() == 0)
+    {
+      startTurn = turn;
+    }
+  }
+
+  /**
+   * Marks the creature as dead at this point in its timeline.
+   */
+  public void markDead()
+  {
+    timeline.end();
+  }
+
+  /**
+   * @return The number of turns that have been logged, which is the next
+   *         turn to be logged.
+   */
+  public int getTurn()
+  {
+    return startTurn + timeline.size();
+  }
+
+  /**
+   * @return The turn of the game that the timeline starts on.
+   */
+  public int getStartTurn()
+  {
+    return startTurn;
+  }
+
+  /**
+   * @return A new, empty timeline of the kind chosen by
+   *         Attributes.Timeline_Encoding.
+   */
+  private static Timeline newTimeline()
+  {
+    switch (Attributes.Timeline_Encoding)
+    {
+      case "floats":
+        return new FloatTimeline();
+      case "keyframes":
+        return new KeyframeTimeline();
+      default:
+        return new CompressedTimeline();
+    }
+  }
+
+  /**
+   * @return The timeline being recorded. It is handed to a PastSelf as is.
+   */
+  public Timeline getTimeline()
+  {
+    return timeline;
+  }
+}
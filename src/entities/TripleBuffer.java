@@ -0,0 +1,75 @@
+package entities;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands the latest of a stream of values from one writer thread to one reader
+ * thread without locking. There are three buffers: the writer fills the back
+ * buffer, the reader reads the front buffer, and the third one sits in the
+ * middle holding the newest published value. Publishing swaps the back buffer
+ * with the middle one, and reading swaps the middle one with the front buffer
+ * if something new was published. Neither side ever waits for the other, and
+ * the reader always gets the newest complete value; values the reader was too
+ * slow for are skipped.
+ *
+ * @param <T>
+ *          The type of the buffers, which are filled in place and reused.
+ */
+public class TripleBuffer<T>
+{
+  // set in middle when it holds a value the reader has not taken yet
+  private static final int FRESH = 4;
+  private static final int INDEX = 3;
+
+  private final Object[] buffers;
+  private final AtomicInteger middle = new AtomicInteger(1);
+  // only touched by the writer
+  private int back = 0;
+  // only touched by the reader
+  private int front = 2;
+
+  /**
+   * @param first
+   *          One of the three buffers.
+   * @param second
+   *          One of the three buffers.
+   * @param third
+   *          One of the three buffers. The reader starts out reading this one.
+   */
+  public TripleBuffer(T first, T second, T third)
+  {
+    buffers = new Object[] { first, second, third };
+  }
+
+  /**
+   * @return The buffer for the writer to fill.
+   */
+  @SuppressWarnings("unchecked")
+  public T getBack()
+  {
+    return (T) buffers[back];
+  }
+
+  /**
+   * Publishes the back buffer as the newest value and gives the writer
+   * another buffer to fill.
+   */
+  public void publish()
+  {
+    back = middle.getAndSet(back | FRESH) & INDEX;
+  }
+
+  /**
+   * @return The newest published buffer. The reader owns it until the next
+   *         call, and the writer will not touch it until then.
+   */
+  @SuppressWarnings("unchecked")
+  public T getLatest()
+  {
+    if ((middle.get() & FRESH) != 0)
+    {
+      front = middle.getAndSet(front) & INDEX;
+    }
+    return (T) buffers[front];
+  }
+}
@@ -3,12 +3,13 @@ package entities;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import game_engine.AnimatedMesh;
 import game_engine.Attributes;
+import game_engine.GameRandom;
 import graphing.GraphNode;
 import graphing.Heading;
 import graphing.NodeComparator;
 import graphing.TileGraph;
-import javafx.scene.Group;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.PhongMaterial;
 import javafx.scene.shape.Box;
@@ -35,16 +36,12 @@ public class Zombie extends Creature
   private static final double zombieWalkingSpeed = .035;
   private static final double masterZombieSpeed = .05;
   private static final double masterZombie2dSpeed = .3;
+  // less than a wall's thickness (1) minus the cylinder's radius (.2), so a
+  // single step of a long move can't land on the far side of a wall
+  private static final double maxStep = .5;
   private double zombieSmell = 15.0;
   private double twoDSpeed = (.5/60)*ZombieBoardRenderer.cellSize;
   private static final int twoDSize = 3;
-  private int attackTimer = 0;
-
-
-  private int turnCounter = 0;
-  private List<Double> walkBehaviorsX = new ArrayList<>();
-  private List<Double> walkBehaviorsZ = new ArrayList<>();
-  private List<Double> actionBehaviors = new ArrayList<>();
 
   public boolean randomWalk = false;
   public boolean isMasterZombie = false;
@@ -59,7 +56,8 @@ public class Zombie extends Creature
 
   private Box healthBar;
 
-  Random rand = new Random();
+  // this zombie's own stream, split off of the AI stream
+  SplittableRandom rand = GameRandom.split(GameRandom.AI);
 
   /*
    * Booleans used to keep track of events in the animation timer and the thread
@@ -79,10 +77,8 @@ public class Zombie extends Creature
   private double prevAngle = 0;
 
   public Cylinder zombieCylinder = null;
-  // contains one mesh, which is then added to zombieMeshes
-
-  // contains all the meshes for an animation sequence
-  public Group zombieMeshes = new Group();
+  // plays the walk animation, set when the zombie is meshed
+  public AnimatedMesh zombieMeshes;
 
   public Rectangle collisionBox;
   public CalculatePath calcPath = new CalculatePath();
@@ -92,9 +88,25 @@ public class Zombie extends Creature
   double lastX;
   double lastZ;
 
-  public int currentFrame = 0;
-  // direction of the frames, true if increasing order, false if decreasing order
-  private boolean direction = true;
+  /**
+   * How much AI work a zombie gets, based on its distance to the player.
+   * Near zombies are updated every tick. The others are updated every stride
+   * ticks, and far zombies also skip pathfinding and sounds.
+   */
+  public enum AiDetail
+  {
+    NEAR(1), MID(4), FAR(16);
+
+    public final int stride;
+
+    AiDetail(int stride)
+    {
+      this.stride = stride;
+    }
+  }
+
+  // spreads the reduced detail updates of the zombies over different ticks
+  public final int detailPhase = rand.nextInt(AiDetail.FAR.stride);
 
   /**
    * Constructor that sets whether this zombie is a random walk zombie or a line
@@ -104,10 +116,15 @@ public class Zombie extends Creature
   public Zombie(Tile tile, int row, int col, double xPos, double zPos,
       EntityManager entityManager)
   {
-    this.hitPoints = TOTALHITPOINTS;
     stepDistance = 1;
 
     this.entityManager = entityManager;
+    this.world = entityManager.world;
+    this.id = world.spawn(EntityWorld.ZOMBIE, this);
+    world.timeline[id] = new TimelineRecorder();
+    world.x[id] = xPos;
+    world.z[id] = zPos;
+    setHitPoints(TOTALHITPOINTS);
     // 50% chance that the zombie is either a random
     // walk zombie or a line walk zombie.
     if (rand.nextInt(2) == 0)
@@ -129,16 +146,12 @@ public class Zombie extends Creature
 
 
   /**
-   * Updates the healthbar on top of each zombie
+   * @return The length of the healthbar on top of the zombie, which is its
+   *         hit points as a fraction of full health.
    */
-  public void updateHealthBar()
+  public double getHealthFraction()
   {
-    if(hitPoints <= 0 )
-    {
-      healthBar.setVisible(false);
-    }
-    double rectangleLength = 1 * hitPoints / TOTALHITPOINTS;
-    healthBar.setWidth(rectangleLength);
+    return 1 * getHitPoints() / TOTALHITPOINTS;
   }
 
   public Box getHealthBar()
@@ -223,9 +236,13 @@ public class Zombie extends Creature
 
   /**
    * Moves the zombie forward in a direction determined by the current angle in
-   * a 3D environment.
+   * a 3D environment. A zombie updated only every few ticks moves that many
+   * ticks' worth at once, so the move is made in steps no longer than maxStep
+   * and walls are checked after each of them; otherwise a far zombie could
+   * step clean through a wall.
    *
-   * @return true if movement is successful (no wall collisions)
+   * @return true if movement is successful (no wall collisions). On a
+   *         collision the zombie stays where its last good step left it.
    *
    */
   public boolean moveThreeDZombie(double angle, double zombieWalkingSpeed,
@@ -234,46 +251,41 @@ public class Zombie extends Creature
     lastX = zombieCylinder.getTranslateX();
     lastZ = zombieCylinder.getTranslateZ();
 
+    int steps = Math.max(1, (int) Math.ceil(zombieWalkingSpeed / maxStep));
+    double step = zombieWalkingSpeed / steps;
     double cosTransform = Math.cos(angle * (Math.PI / 180));
     double sinTransform = Math.sin(angle * (Math.PI / 180));
-    double movementAmountZ = zombieCylinder.getTranslateZ()
-            + (zombieWalkingSpeed * (cosTransform));
-    double movementAmountX = zombieCylinder.getTranslateX()
-            + (zombieWalkingSpeed * (sinTransform));
-
-    if (movementAmountX > 0 && movementAmountZ > 0
-            && movementAmountX < entityManager.zombieHouse.boardWidth
-            && movementAmountZ < entityManager.zombieHouse.boardHeight)
+    boolean moved = true;
+    for (int i = 0; i < steps; i++)
     {
+      double stepX = zombieCylinder.getTranslateX();
+      double stepZ = zombieCylinder.getTranslateZ();
+      double movementAmountZ = stepZ + (step * (cosTransform));
+      double movementAmountX = stepX + (step * (sinTransform));
+
+      if (movementAmountX <= 0 || movementAmountZ <= 0
+              || movementAmountX >= entityManager.zombieHouse.boardWidth
+              || movementAmountZ >= entityManager.zombieHouse.boardHeight)
+      {
+        break;
+      }
       zombieCylinder.setTranslateZ(movementAmountZ);
       zombieCylinder.setTranslateX(movementAmountX);
 
       // @hector wall collision on this location, don't move there
       if(entityManager.getWallCollision(zombieCylinder) != null)
       {
-        zombieCylinder.setTranslateZ(lastZ);
-        zombieCylinder.setTranslateX(lastX);
-        return false;
+        zombieCylinder.setTranslateZ(stepZ);
+        zombieCylinder.setTranslateX(stepX);
+        moved = false;
+        break;
       }
-
-      double angleToPlayer = getAngleToPlayer();
-      for (int i = 0; i < zombieMeshes.getChildren().size(); i++)
-      {
-        // move zombie
-        zombieMeshes.setTranslateZ(movementAmountZ);
-        zombieMeshes.setTranslateX(movementAmountX);
-        zombieMeshes.setRotate(angleToPlayer);
-      }
-
-      // move healthbar with zombie
-      healthBar.setRotate(angleToPlayer);
-      healthBar.setTranslateZ(movementAmountZ);
-      healthBar.setTranslateX(movementAmountX);
+      // the mesh and the health bar follow the cylinder in RenderSyncSystem
     }
     xPos = zombieCylinder.getTranslateX();
     zPos = zombieCylinder.getTranslateZ();
 
-    return true;
+    return moved;
   }
 
   public void setPushed()
@@ -448,34 +460,34 @@ public class Zombie extends Creature
    */
   @Override
   public void tick()
+  {
+    tick(AiDetail.NEAR, AiDetail.NEAR.stride);
+  }
+
+  /**
+   * Updates the zombie at the given level of detail. A zombie that is not
+   * near the player is only updated every few ticks, and moves as far as it
+   * would have on each of the ticks that went by since its last update, so it
+   * covers the same ground. Zombies that
+   * are far away can neither reach nor be heard by the player, so they don't
+   * look for a path to the player or play sounds. Attacks, logging the
+   * zombie's timeline and moving its mesh are done by the systems in
+   * EntityManager.
+   *
+   * @param detail
+   *          The level of detail the zombie is updated at.
+   * @param elapsed
+   *          The number of ticks since the zombie was last updated.
+   */
+  public void tick(AiDetail detail, int elapsed)
   {
     boolean playerCollideWithWall;
     boolean playerCollideWithZombie;
+    double walkingSpeed = zombieWalkingSpeed * elapsed;
+    double masterSpeed = masterZombieSpeed * elapsed;
 
     playerCollideWithWall = entityManager.getWallCollision(zombieCylinder) != null;
 
-    //@author Nick: This calls the entity manager to check if there is a player
-    //  in it's hitbox. If so, the entitymanager distributes damage to the player.
-    //
-    if(attackTimer > 40)
-    {
-      attackTimer = 0;
-    }
-    if(attackTimer > 0)
-    {
-      attackTimer++;
-    }
-    if(attackTimer == 0)
-    {
-      if(entityManager.zombieAttack(this))
-      {
-        //track all zombies who deal damage to player so they can be added to pastSelves when game restarts
-        entityManager.interactingZombies.add(this);
-      }
-      attackTimer = 1;
-    }
-
-
     if(pushed)
     {
       if(!moveThreeDZombie(angleToPlayer, zombieWalkingSpeed+.1, zombieCylinder)) pushed = false;
@@ -529,7 +541,7 @@ public class Zombie extends Creature
         }
         else
         {
-          moveThreeDZombie(angle, zombieWalkingSpeed, zombieCylinder);
+          moveThreeDZombie(angle, walkingSpeed, zombieCylinder);
         }
       }
       else if (!isMasterZombie && goingAfterPlayer.get())
@@ -537,28 +549,24 @@ public class Zombie extends Creature
         if(playerCollideWithZombie)
         {
           stopThreeDZombie();
-        } else moveTowardPlayer(zombieWalkingSpeed);
+        } else moveTowardPlayer(walkingSpeed);
       }
       else if (isMasterZombie && !goingAfterPlayer.get())
       {
         if(playerCollideWithZombie)
         {
           stopThreeDZombie();
-        } else moveThreeDZombie(angle, masterZombieSpeed, zombieCylinder);
+        } else moveThreeDZombie(angle, masterSpeed, zombieCylinder);
       } else if (isMasterZombie && goingAfterPlayer.get())
       {
         if(playerCollideWithZombie)
         {
           stopThreeDZombie();
-        } else moveTowardPlayer(masterZombieSpeed);
+        } else moveTowardPlayer(masterSpeed);
       }
     }
-    //@Sarah: this is logging the zombie's movement and actions
     double currentX = zombieCylinder.getTranslateX();
     double currentZ = zombieCylinder.getTranslateZ();
-    this.walkBehaviorsX.add(turnCounter, currentX);
-    this.walkBehaviorsZ.add(turnCounter, currentZ);
-    this.actionBehaviors.add(turnCounter, angle);
 
     if (angle == 180)
     {
@@ -640,11 +648,12 @@ public class Zombie extends Creature
     {
       currentZ--;
     }
-    Tile currentTile = entityManager.zombieHouse.gameBoard[(int) currentZ][(int) currentX];
-    findPathToPlayer(currentTile);
-    updateDistance();
-    //System.out.println("Zombie turn counter = " + turnCounter); //testing code
-    turnCounter++;
+    if (detail != AiDetail.FAR)
+    {
+      Tile currentTile = entityManager.zombieHouse.gameBoard[(int) currentZ][(int) currentX];
+      findPathToPlayer(currentTile);
+      updateDistance();
+    }
   }
 
   /**
@@ -834,7 +843,10 @@ public class Zombie extends Creature
       if (calcPath.distanceToPlayer <= zombieSmell
           || (isMasterZombie && masterZombieChasePlayer.get()))
       {
-        goingAfterPlayer.set(true);
+        if (!goingAfterPlayer.getAndSet(true))
+        {
+          entityManager.events.publish(SimulationEvents.Type.PLAYER_DETECTED, this);
+        }
       } else 
       {
         goingAfterPlayer.set(false);
@@ -884,7 +896,7 @@ public class Zombie extends Creature
       
       entityManager.soundManager.playSoundClip(Sound.shuffle, distance,
           balance);
-      if (Math.random() < .03)
+      if (GameRandom.stream(GameRandom.SOUND).nextDouble() < .03)
       {
         entityManager.soundManager.playSoundClip(Sound.groan, distance,
             balance);
@@ -916,37 +928,6 @@ public class Zombie extends Creature
     boundingCircle = null;
   }
 
-  /**
-   * @author Hector Carrillo
-   * Sets the next mesh in the animation sequence as visible and the current one as not visible
-   * The animation sequence only contains objects for taking one step forward, so to take two steps
-   * the animation must change directions and go backwards
-   */
-  public void nextMesh()
-  {
-    zombieMeshes.getChildren().get(currentFrame).setVisible(false);
-
-    if(currentFrame == 10 || currentFrame == 0)
-    {
-      direction = !direction;
-    }
-
-    if(direction) currentFrame++;
-    else currentFrame--;
-
-    zombieMeshes.getChildren().get(currentFrame).setVisible(true);
-  }
-
-  /**
-   * @author Nick
-   * @author Sarah Salmonson
-   * This class is called when the zombie receieves damage
-   * Not fully implemented
-   */
-  public void getHit(int damage)
-  {
-    this.hitPoints -= damage;
-  }
   /**
    * 
    * @author Jeffrey McCall This class is used for zombie pathfinding to find
@@ -1253,58 +1234,4 @@ public class Zombie extends Creature
           + Math.abs(tile1.zPos - tile2.zPos));
     }
   }
-  public double getHitPoints()
-  {
-    return hitPoints;
-  }
-
-  /**
-   * Public getter for zpmbie's walk behaviors on X dimension
-   * @return List of walk coordinates on X axis
-   * @author Sarah Salmonson
-   */
-  public List<Double> getWalkBehaviorsX()
-  {
-    return walkBehaviorsX;
-  }
-
-  /**
-   * Public getter for zombie's walk behaviors on Z dimension
-   * @return List of walk coordinates on Z axis
-   * @author Sarah Salmonson
-   */
-  public List<Double> getWalkBehaviorsZ()
-  {
-    return walkBehaviorsZ;
-  }
-
-  /**
-   * Public getter for zombie's action behaviors
-   * @return List of action behaviors
-   * @author Sarah Salmonson
-   */
-  public List<Double> getActionBehaviors()
-  {
-    return actionBehaviors;
-  }
-
-  /**
-   * Public getter for the zombie turnCounter
-   * @return int turnCounter
-   * @author Sarah Salmonson
-   */
-  public int getTurnCounter()
-  {
-    return turnCounter;
-  }
-
-  /**
-   * Public setter for the zombie turnCounter
-   * @param turnCounter
-   * @author Sarah Salmonson
-   */
-  public void setTurnCounter(int turnCounter)
-  {
-    this.turnCounter = turnCounter;
-  }
 }
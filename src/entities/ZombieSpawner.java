@@ -0,0 +1,136 @@
+package entities;
+
+import java.util.SplittableRandom;
+
+import game_engine.Attributes;
+import game_engine.GameRandom;
+import levels.Tile;
+
+/**
+ * Picks the tiles that zombies start on. The floor tiles that can hold a
+ * zombie are sorted by region once, then the spawn tiles are drawn one at a
+ * time without replacement: a region is chosen with a chance in proportion to
+ * how many of its tiles are left, and then a tile of that region is chosen.
+ * A region that already has its share of zombies is left out of the draw, so
+ * the zombies are spread over the house. Each draw is constant time, so
+ * spawning takes one pass over the board plus one step per zombie.
+ */
+public class ZombieSpawner
+{
+  // regions are numbered 1 to 4, tiles outside of them go in slot 0
+  private static final int REGIONS = 5;
+
+  // the tiles of each region that can still be drawn, in [0, remaining)
+  private final Tile[][] candidates = new Tile[REGIONS][];
+  private final int[] remaining = new int[REGIONS];
+  private final int[] spawned = new int[REGIONS];
+  private final SplittableRandom random = GameRandom.stream(GameRandom.SPAWN);
+
+  /**
+   * Sorts the tiles of the board that can hold a zombie by region: floor
+   * tiles that are not in a hallway and do not have a zombie yet.
+   *
+   * @param gameBoard
+   *          The board to spawn on.
+   */
+  public ZombieSpawner(Tile[][] gameBoard)
+  {
+    for (Tile[] line : gameBoard)
+    {
+      for (Tile tile : line)
+      {
+        if (canHoldZombie(tile))
+        {
+          remaining[slot(tile)]++;
+        }
+      }
+    }
+    for (int i = 0; i < REGIONS; i++)
+    {
+      candidates[i] = new Tile[remaining[i]];
+      remaining[i] = 0;
+    }
+    for (Tile[] line : gameBoard)
+    {
+      for (Tile tile : line)
+      {
+        if (canHoldZombie(tile))
+        {
+          int slot = slot(tile);
+          candidates[slot][remaining[slot]++] = tile;
+        }
+      }
+    }
+  }
+
+  /**
+   * Marks the spawn tiles of the board: one more than Attributes.Min_Zombies,
+   * but no more than Attributes.Max_Zombies, and in each region no more than
+   * a quarter of Attributes.Max_Zombies plus one. Fewer are marked if the
+   * board runs out of room.
+   *
+   * @return The number of tiles marked.
+   */
+  public int spawn()
+  {
+    int wanted = (int) Math.min(Attributes.Min_Zombies + 1, Attributes.Max_Zombies);
+    int regionCap = (int) (Attributes.Max_Zombies / 4) + 1;
+    int count = 0;
+    while (count < wanted)
+    {
+      Tile tile = draw(regionCap);
+      if (tile == null) break;
+      tile.hasZombie = true;
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Draws one tile, weighting each region by the tiles it has left.
+   *
+   * @return The tile, or null if every region is full or empty.
+   */
+  private Tile draw(int regionCap)
+  {
+    int total = 0;
+    for (int i = 0; i < REGIONS; i++)
+    {
+      if (isOpen(i, regionCap)) total += remaining[i];
+    }
+    if (total == 0) return null;
+
+    int pick = random.nextInt(total);
+    int slot = 0;
+    while (!isOpen(slot, regionCap) || pick >= remaining[slot])
+    {
+      if (isOpen(slot, regionCap)) pick -= remaining[slot];
+      slot++;
+    }
+
+    // swap the drawn tile out of the live part of the array
+    Tile[] tiles = candidates[slot];
+    Tile tile = tiles[pick];
+    tiles[pick] = tiles[--remaining[slot]];
+    tiles[remaining[slot]] = tile;
+    spawned[slot]++;
+    return tile;
+  }
+
+  // tiles that are in no region were never capped
+  private boolean isOpen(int slot, int regionCap)
+  {
+    return slot == 0 || spawned[slot] < regionCap;
+  }
+
+  private static boolean canHoldZombie(Tile tile)
+  {
+    return !tile.getType().equals("wall") && !tile.isHallway && !tile.hasZombie;
+  }
+
+  private static int slot(Tile tile)
+  {
+    int region = tile.getRegion();
+    return region >= 1 && region < REGIONS ? region : 0;
+  }
+}
@@ -0,0 +1,140 @@
+package game_engine;
+
+import javafx.scene.Group;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.transform.Rotate;
+
+/**
+ * The mesh of an animated creature. Holds a single MeshView, so the scene
+ * only has one node per creature whatever the number of frames.
+ *
+ * If its animation can be morphed, the creature has a mesh of its own whose
+ * points are blended between the two frames around the place the animation
+ * is at, which keeps the walk smooth between frames. Otherwise a frame is
+ * shown by pointing the view at the shared mesh and material of that frame.
+ *
+ * The creature is drawn at one of the levels of detail of its animation,
+ * which the renderer picks by how far away it is.
+ *
+ * The group is what is moved and turned; the view inside it is what is
+ * scaled.
+ */
+public class AnimatedMesh extends Group
+{
+  private final MeshLibrary.Animation animation;
+  private final MeshView view = new MeshView();
+  // null unless the frames are blended
+  private final TriangleMesh morphMesh;
+  private final float[] morphPoints;
+  // the level of detail being drawn
+  private MeshLibrary.Animation shown;
+  private int shownLevel = 0;
+  private double shownPosition = -1;
+
+  /**
+   * @param animation
+   *          The animation the mesh plays, starting on its first frame at
+   *          full detail.
+   */
+  public AnimatedMesh(MeshLibrary.Animation animation)
+  {
+    this.animation = animation;
+    this.shown = animation;
+    if (Attributes.Morph_Animation && animation.canMorph())
+    {
+      // the full level has the most points
+      morphMesh = new TriangleMesh();
+      morphPoints = new float[animation.getPointCount()];
+      animation.fillMorphMesh(morphMesh);
+      view.setMesh(morphMesh);
+      view.setMaterial(animation.getMaterial(0));
+    }
+    else
+    {
+      morphMesh = null;
+      morphPoints = null;
+    }
+    view.setTranslateY(1);
+    getChildren().add(view);
+    setRotationAxis(Rotate.Y_AXIS);
+    showFrame(0, false);
+  }
+
+  /**
+   * @return The view that draws the frames.
+   */
+  public MeshView getView()
+  {
+    return view;
+  }
+
+  /**
+   * @return The index of the last frame of the animation.
+   */
+  public int getLastFrame()
+  {
+    return animation.getFrameCount() - 1;
+  }
+
+  /**
+   * Picks the level of detail the mesh is drawn at. It is drawn the next
+   * time a frame is shown.
+   *
+   * @param level
+   *          The level, 0 being full detail. Levels past the simplest the
+   *          animation has give the simplest.
+   */
+  public void setLevel(int level)
+  {
+    level = Math.min(level, animation.getLevelCount() - 1);
+    if (level == shownLevel) return;
+    shownLevel = level;
+    shown = animation.getLevel(level);
+    if (morphMesh != null)
+    {
+      shown.fillMorphMesh(morphMesh);
+    }
+    shownPosition = -1;
+  }
+
+  /**
+   * Shows the animation at a place between two frames. Does nothing if it
+   * is already shown.
+   *
+   * @param position
+   *          The frame, where 2.25 is a quarter of the way from frame 2 to
+   *          frame 3.
+   * @param blend
+   *          true to blend the frames around the position, false to show the
+   *          nearest frame, which is cheaper for creatures too far away for
+   *          the difference to be seen.
+   */
+  public void showFrame(double position, boolean blend)
+  {
+    if (morphMesh == null || !blend)
+    {
+      position = Math.round(position);
+    }
+    if (position == shownPosition) return;
+    if (morphMesh != null)
+    {
+      shown.morph(position, morphPoints);
+      morphMesh.getPoints().set(0, morphPoints, 0, shown.getPointCount());
+    }
+    else
+    {
+      int frame = (int) position;
+      int last = (int) shownPosition;
+      if (last < 0 || view.getMesh() != shown.getMesh(frame))
+      {
+        view.setMesh(shown.getMesh(frame));
+      }
+      if (last < 0 || view.getMaterial() != shown.getMaterial(frame))
+      {
+        view.setMaterial(shown.getMaterial(frame));
+      }
+    }
+    shownPosition = position;
+  }
+}
@@ -8,6 +8,10 @@ package game_engine;
 public class Attributes
 {
   public static double Frame_Rate = 60; // frames per second
+  public static boolean Profile_Systems = false; // print the time spent in each entity system
+  public static boolean Simulation_Thread = false; // tick the simulation on its own thread instead of the FX thread
+  public static String Timeline_Encoding = "compressed"; // how past selves are recorded: "floats", "compressed" or "keyframes"
+  public static double Keyframe_Tolerance = .01; // how far a keyframed past self may stray from where it really was
 
   // Player
   public static double Player_Hearing = 20;
@@ -21,8 +25,32 @@ public class Attributes
   public static double Zombie_Smell = 15;
   public static double Max_Zombies = 25;
   public static double Min_Zombies = 15;
+  public static double AI_Near_Distance = 8; // full AI inside this distance
+  public static double AI_Far_Distance = 20; // no pathing or sound beyond this distance
+  public static double Zombie_Activation_Radius = 20; // zombies further away in another region sleep
+  public static double Player_Noise_Radius = 10; // attacking or pushing wakes sleeping zombies this close
   
   // Map
   public static int Map_Width = 50;
   public static int Map_Height = 50;
+  public static double Render_Distance_Squared = 110; // chunks and creatures further than this squared are not drawn
+  public static boolean Frame_Governor = true; // lower the quality below when frames take too long
+  public static double Min_Render_Distance_Squared = 36; // the governor never draws less than this far, squared
+  public static int Max_Animation_Interval = 4; // the governor never steps the animations less often than this many ticks
+  public static int Max_Far_Zombie_Stride = 24; // the governor never updates far zombies less often than this many ticks
+  public static boolean Frustum_Culling = true; // only draw what is inside the camera's field of view
+  public static boolean Portal_Culling = true; // only draw the rooms that can be seen through the doorways
+  public static int Fog_Bands = 8; // steps of darkness the level fades to black in
+  public static int Level_Chunk_Size = 8; // tiles along each side of a chunk of merged floor, ceiling and wall meshes
+  public static boolean Morph_Animation = true; // blend the creatures' animations between frames instead of swapping meshes
+  public static double Morph_Distance_Squared = 36; // creatures further than this squared snap to the nearest frame
+  public static double Lod_Distance = 4; // each this far from the player, models are drawn one level of detail simpler
+
+  // Randomness
+  public static long Game_Seed = 0;
+  public static boolean Fixed_Seed = false; // true when the seed came from the run options
+  public static String Replay_Record_File = null; // write the past selves of each game to this file
+  public static String Replay_Load_File = null; // start each game on this file's map with its past selves
+  public static String Input_Record_File = null; // log the player's inputs of each game to this file
+  public static String Input_Play_File = null; // play each game from this file's inputs instead of the player's
 }
@@ -0,0 +1,221 @@
+package game_engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javafx.scene.Group;
+import javafx.scene.Node;
+
+/**
+ * Keeps the chunks of the level near the player in the scene graph and the
+ * rest out of it. The chunk groups stay built; a chunk is attached to the
+ * root when it comes within the render distance and detached when it leaves,
+ * and nothing else in the scene is touched. Chunks are only checked again
+ * when the player moves into another chunk or the render distance changes,
+ * and then against the whole chunk the player is in, so no chunk can come
+ * into range while the player stays inside it.
+ *
+ * Static things standing on the level, like obstacles and the exit, are put
+ * into the group of the chunk they stand in and come and go with it.
+ */
+public class ChunkStreamer
+{
+  // how far a thing put into a chunk may reach from its tile's center
+  private static final double PLACED_RADIUS = .75;
+
+  /**
+   * Nodes put into a chunk, and where they stand.
+   */
+  private static class Placed
+  {
+    final Node[] nodes;
+    final double x;
+    final double z;
+
+    Placed(Node[] nodes, double x, double z)
+    {
+      this.nodes = nodes;
+      this.x = x;
+      this.z = z;
+    }
+  }
+
+  private final Group root;
+  private final List<LevelMesher.Chunk> chunks;
+  private final int chunkSize;
+  // the index of the chunk at each [chunk col][chunk row], -1 where there is nothing to draw
+  private final int[][] grid;
+  private final boolean[] attached;
+  // the nodes put into each chunk
+  private final List<List<Placed>> placed = new ArrayList<>();
+  // the rooms whose surfaces are in each chunk, filled in on the first cull
+  private int[][] chunkRooms;
+
+  private int playerChunkCol = -1;
+  private int playerChunkRow = -1;
+  private double lastDistanceSquared = -1;
+
+  /**
+   * @param root
+   *          The group the chunks are attached to.
+   * @param chunks
+   *          The chunks of the level, none of them attached yet.
+   * @param chunkSize
+   *          The number of tiles along each side of a chunk.
+   * @param boardHeight
+   *          The number of cols of the board.
+   * @param boardWidth
+   *          The number of rows of the board.
+   */
+  public ChunkStreamer(Group root, List<LevelMesher.Chunk> chunks, int chunkSize, int boardHeight, int boardWidth)
+  {
+    this.root = root;
+    this.chunks = chunks;
+    this.chunkSize = Math.max(1, chunkSize);
+    this.grid = new int[chunkIndex(boardHeight - 1) + 1][chunkIndex(boardWidth - 1) + 1];
+    this.attached = new boolean[chunks.size()];
+    for (int[] gridRow : grid)
+    {
+      Arrays.fill(gridRow, -1);
+    }
+    for (int i = 0; i < chunks.size(); i++)
+    {
+      LevelMesher.Chunk chunk = chunks.get(i);
+      grid[chunkIndex(chunk.minZ)][chunkIndex(chunk.minX)] = i;
+      placed.add(new ArrayList<>());
+    }
+  }
+
+  /**
+   * Puts nodes into the chunk that the point is in, so they are drawn with
+   * it. If nothing is drawn there, the nodes go straight into the root.
+   *
+   * @param x
+   *          x coordinate of the nodes
+   * @param z
+   *          z coordinate of the nodes
+   * @param nodes
+   *          The nodes to add.
+   */
+  public void add(double x, double z, Node... nodes)
+  {
+    int chunk = chunkAt(x, z);
+    if (chunk < 0)
+    {
+      root.getChildren().addAll(nodes);
+    }
+    else
+    {
+      chunks.get(chunk).group.getChildren().addAll(nodes);
+      placed.get(chunk).add(new Placed(nodes, x, z));
+    }
+  }
+
+  /**
+   * Attaches the chunks that came into range and detaches the ones that went
+   * out of range. Does nothing while the player stays in the same chunk and
+   * the distance doesn't change.
+   *
+   * @param playerX
+   *          x coordinate of the player
+   * @param playerZ
+   *          z coordinate of the player
+   * @param distanceSquared
+   *          The square of the render distance.
+   * @return true if the chunks were checked.
+   */
+  public boolean update(double playerX, double playerZ, double distanceSquared)
+  {
+    int col = chunkIndex(playerZ);
+    int row = chunkIndex(playerX);
+    if (col == playerChunkCol && row == playerChunkRow && distanceSquared == lastDistanceSquared)
+    {
+      return false;
+    }
+    playerChunkCol = col;
+    playerChunkRow = row;
+    lastDistanceSquared = distanceSquared;
+
+    double minX = row * chunkSize;
+    double minZ = col * chunkSize;
+    double maxX = minX + chunkSize;
+    double maxZ = minZ + chunkSize;
+    for (int i = 0; i < chunks.size(); i++)
+    {
+      LevelMesher.Chunk chunk = chunks.get(i);
+      double dx = Math.max(0, Math.max(chunk.minX - maxX, minX - chunk.maxX));
+      double dz = Math.max(0, Math.max(chunk.minZ - maxZ, minZ - chunk.maxZ));
+      boolean inRange = dx * dx + dz * dz < distanceSquared;
+      if (inRange && !attached[i])
+      {
+        root.getChildren().add(chunk.group);
+      }
+      else if (!inRange && attached[i])
+      {
+        root.getChildren().remove(chunk.group);
+      }
+      attached[i] = inRange;
+    }
+    return true;
+  }
+
+  /**
+   * Hides the attached chunks that are out of view or have no room in them
+   * that can be seen, and shows the rest. The things put into a chunk that
+   * is shown are hidden on their own when they are out of view. Unlike
+   * attaching, this is done every frame, since what can be seen changes as
+   * the player turns.
+   *
+   * @param cone
+   *          What the camera sees this frame, or null to not cull by view.
+   * @param culler
+   *          Knows which rooms were seen this frame, or null to not cull by
+   *          room.
+   */
+  public void cull(ViewCone cone, PortalCuller culler)
+  {
+    if (culler != null && chunkRooms == null)
+    {
+      chunkRooms = new int[chunks.size()][];
+      for (int i = 0; i < chunks.size(); i++)
+      {
+        LevelMesher.Chunk chunk = chunks.get(i);
+        chunkRooms[i] = culler.roomsIn((int) chunk.minZ, (int) chunk.minX, (int) chunk.maxZ - 1, (int) chunk.maxX - 1);
+      }
+    }
+    for (int i = 0; i < chunks.size(); i++)
+    {
+      if (!attached[i]) continue;
+      LevelMesher.Chunk chunk = chunks.get(i);
+      boolean shown = (cone == null || cone.sees(chunk.minX, chunk.minZ, chunk.maxX, chunk.maxZ))
+          && (culler == null || culler.isAnyVisible(chunkRooms[i]));
+      chunk.group.setVisible(shown);
+      if (!shown) continue;
+      for (Placed thing : placed.get(i))
+      {
+        boolean inView = cone == null || cone.sees(thing.x, thing.z, PLACED_RADIUS);
+        for (Node node : thing.nodes)
+        {
+          node.setVisible(inView);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return The index of the chunk the point is in, or -1 if there is none.
+   */
+  private int chunkAt(double x, double z)
+  {
+    int col = chunkIndex(z);
+    int row = chunkIndex(x);
+    if (col < 0 || col >= grid.length || row < 0 || row >= grid[col].length) return -1;
+    return grid[col][row];
+  }
+
+  private int chunkIndex(double coordinate)
+  {
+    return (int) Math.floor(coordinate / chunkSize);
+  }
+}
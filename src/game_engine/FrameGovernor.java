@@ -0,0 +1,154 @@
+package game_engine;
+
+import entities.Zombie;
+
+/**
+ * Trades drawing quality for speed when frames take too long, and takes it
+ * back when there is time to spare. Quality goes down in a few steps, each
+ * of which draws less of the level around the player (with the fog closing
+ * in to match), steps the animations less often and updates the far away
+ * zombies less often. The bounds of each are set in Attributes.
+ *
+ * Every frame the game loop tells the governor how long it has been since
+ * the last frame, how long the frame's own work took and how long the last
+ * tick of the simulation took. These are averaged, and the quality only
+ * moves a step when they stay past a threshold for a while, so that one
+ * slow frame doesn't change anything.
+ */
+public class FrameGovernor
+{
+  // how many steps there are between full quality and the lowest
+  private static final int STEPS = 4;
+  // how much of the averages a new measurement makes up
+  private static final double SMOOTHING = .05;
+  // frames further apart than this part of the target are running late
+  private static final double LATE = 1.2;
+  // quality is only raised when the work of a frame takes less than this part of the target
+  private static final double SPARE = .5;
+
+  private final double targetNanos = 1000000000 / Attributes.Frame_Rate;
+  private final double baseFarClip;
+  private final boolean governSimulation;
+  private double averageInterval;
+  private double averageWork;
+  private double averageSimulation;
+  private long lastFrame = -1;
+  // frames to wait before the quality may move again
+  private int cooldown;
+  // 0 is full quality, STEPS is the lowest
+  private int step = 0;
+
+  /**
+   * @param baseFarClip
+   *          The far clip of the camera at full quality.
+   */
+  public FrameGovernor(double baseFarClip)
+  {
+    this.baseFarClip = baseFarClip;
+    // seeded, recorded and played back games have to tick the same way every
+    // time, so only what is drawn is governed in them
+    this.governSimulation = !Attributes.Fixed_Seed && Attributes.Input_Record_File == null
+        && Attributes.Input_Play_File == null;
+    averageInterval = targetNanos;
+    // the first frames of a level are slowed by loading it
+    cooldown = (int) Attributes.Frame_Rate;
+  }
+
+  /**
+   * Measures a frame and moves the quality a step if it is needed.
+   *
+   * @param now
+   *          The time of the frame, in nanoseconds.
+   * @param workNanos
+   *          How long the game loop took to tick and draw the frame.
+   * @param simulationNanos
+   *          How long the last tick of the simulation took.
+   * @return true if the quality changed.
+   */
+  public boolean update(long now, long workNanos, long simulationNanos)
+  {
+    if (!Attributes.Frame_Governor) return false;
+    if (lastFrame < 0)
+    {
+      lastFrame = now;
+      return false;
+    }
+    averageInterval += (now - lastFrame - averageInterval) * SMOOTHING;
+    averageWork += (workNanos - averageWork) * SMOOTHING;
+    averageSimulation += (simulationNanos - averageSimulation) * SMOOTHING;
+    lastFrame = now;
+
+    if (cooldown > 0)
+    {
+      cooldown--;
+      return false;
+    }
+    boolean late = averageInterval > targetNanos * LATE || averageSimulation > targetNanos;
+    boolean spare = averageInterval < targetNanos * LATE && averageWork < targetNanos * SPARE
+        && averageSimulation < targetNanos * SPARE;
+    if (late && step < STEPS)
+    {
+      step++;
+    }
+    else if (spare && step > 0)
+    {
+      step--;
+    }
+    else
+    {
+      return false;
+    }
+    // give the new quality a second to show in the averages
+    cooldown = (int) Attributes.Frame_Rate;
+    return true;
+  }
+
+  /**
+   * @return The square of the distance the level and the creatures are drawn
+   *         to.
+   */
+  public double getRenderDistanceSquared()
+  {
+    double radius = lerp(Math.sqrt(Attributes.Render_Distance_Squared),
+        Math.sqrt(Attributes.Min_Render_Distance_Squared));
+    return radius * radius;
+  }
+
+  /**
+   * @return The far clip of the camera, which the fog fades to black at. It
+   *         shrinks with the render distance, so the edge of what is drawn
+   *         stays in the dark.
+   */
+  public double getFarClip()
+  {
+    return baseFarClip * Math.sqrt(getRenderDistanceSquared() / Attributes.Render_Distance_Squared);
+  }
+
+  /**
+   * @return The number of ticks between steps of the animations.
+   */
+  public int getAnimationInterval()
+  {
+    return (int) Math.round(lerp(1, Attributes.Max_Animation_Interval));
+  }
+
+  /**
+   * @return The number of ticks between updates of a far away zombie. Always
+   *         the usual stride in games that have to play out the same way
+   *         every time.
+   */
+  public int getFarZombieStride()
+  {
+    if (!governSimulation) return Zombie.AiDetail.FAR.stride;
+    return (int) Math.round(lerp(Zombie.AiDetail.FAR.stride, Attributes.Max_Far_Zombie_Stride));
+  }
+
+  /**
+   * @return The value between the one at full quality and the one at the
+   *         lowest that the current step is at.
+   */
+  private double lerp(double full, double lowest)
+  {
+    return full + (lowest - full) * step / STEPS;
+  }
+}
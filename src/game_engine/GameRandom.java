@@ -0,0 +1,103 @@
+package game_engine;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * The single source of randomness for the game. Each subsystem (map
+ * generation, zombie spawning, AI, sound, ...) draws from its own named
+ * stream, and each entity gets its own stream split off of its subsystem's
+ * stream. Every stream is derived from one game seed, so a run started with
+ * the same seed generates the same map, the same spawns and the same AI
+ * choices. Streams are independent, so e.g. playing a sound more or less
+ * often never changes which way a zombie turns.
+ *
+ * The streams are not thread safe and are meant to be used from the game
+ * loop only.
+ */
+public class GameRandom
+{
+  // subsystem names
+  public static final String MAP = "map";
+  public static final String SPAWN = "spawn";
+  public static final String AI = "ai";
+  public static final String MESHES = "meshes";
+  public static final String SOUND = "sound";
+
+  private static long seed = Attributes.Game_Seed;
+  private static final Map<String, SplittableRandom> streams = new HashMap<>();
+
+  /**
+   * Starts the randomness for a new game. If a seed was given in the run
+   * options it is reused, so every game of the session is the same game;
+   * otherwise a fresh seed is chosen. The seed is printed so that any run
+   * can be reproduced by passing it back in with --seed=.
+   */
+  public static void newGame()
+  {
+    if (!Attributes.Fixed_Seed)
+    {
+      Attributes.Game_Seed = System.nanoTime();
+    }
+    reseed(Attributes.Game_Seed);
+    System.out.println("Game seed: " + seed);
+  }
+
+  /**
+   * Throws away all of the streams and derives them again from the given
+   * seed.
+   *
+   * @param newSeed
+   *          The seed that all streams are derived from.
+   */
+  public static void reseed(long newSeed)
+  {
+    seed = newSeed;
+    streams.clear();
+  }
+
+  /**
+   * @return The seed that the current streams were derived from.
+   */
+  public static long getSeed()
+  {
+    return seed;
+  }
+
+  /**
+   * Gets the stream of a subsystem. The stream is created from the game seed
+   * the first time it is asked for, and the same stream is returned after
+   * that.
+   *
+   * @param subsystem
+   *          The name of the subsystem, one of the constants of this class.
+   * @return The random stream of the subsystem.
+   */
+  public static SplittableRandom stream(String subsystem)
+  {
+    SplittableRandom random = streams.get(subsystem);
+    if (random == null)
+    {
+      // String.hashCode() is fixed by the language spec, so the mixing is
+      // the same on every JVM.
+      random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + subsystem.hashCode());
+      streams.put(subsystem, random);
+    }
+    return random;
+  }
+
+  /**
+   * Splits a new stream off of a subsystem's stream for a single entity.
+   * Entities are created in the same order on every run with the same seed,
+   * so each one gets the same stream.
+   *
+   * @param subsystem
+   *          The name of the subsystem the entity belongs to.
+   * @return A new random stream owned by the entity.
+   */
+  public static SplittableRandom split(String subsystem)
+  {
+    return stream(subsystem).split();
+  }
+}
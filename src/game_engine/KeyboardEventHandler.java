@@ -2,6 +2,7 @@
 package game_engine;
 
 import entities.Player;
+import entities.PlayerInput;
 import javafx.event.EventHandler;
 import javafx.scene.PerspectiveCamera;
 import javafx.scene.input.KeyCode;
@@ -20,6 +21,8 @@ import java.security.Key;
  */
 public class KeyboardEventHandler implements EventHandler<KeyEvent>
 {
+  private static final int REPLAY_SKIP_TURNS = (int) (5 * Attributes.Frame_Rate);
+
   private ZombieHouse3d zombieHouse3d;
   private Player player;
 /**
@@ -54,27 +57,23 @@ public class KeyboardEventHandler implements EventHandler<KeyEvent>
     {
       if(event.isShiftDown()) 
       {
-        player.shiftPressed.set(true);
+        input(PlayerInput.SPRINT, 1);
       }
       if(event.getCode()==KeyCode.W) 
       {
-        player.wDown.set(true);
-        player.velocity = Player.WALKINGSPEED;
+        input(PlayerInput.FORWARD, 1);
       }
       if(event.getCode()==KeyCode.S) 
       {
-        player.sDown.set(true);
-        player.velocity = -Player.WALKINGSPEED;
+        input(PlayerInput.BACKWARD, 1);
       }
       if(event.getCode()==KeyCode.A) 
       {
-        player.aDown.set(true);
-        player.strafeVelocity = Player.WALKINGSPEED;
+        input(PlayerInput.STRAFE_LEFT, 1);
       }
       if(event.getCode()==KeyCode.D) 
       {
-        player.dDown.set(true);
-        player.strafeVelocity = -Player.WALKINGSPEED;
+        input(PlayerInput.STRAFE_RIGHT, 1);
       }
       if(event.getCode()==KeyCode.F)
       {
@@ -83,17 +82,16 @@ public class KeyboardEventHandler implements EventHandler<KeyEvent>
       }
       if(event.getCode()==KeyCode.LEFT)
       {
-        player.turnLeft = true;
+        input(PlayerInput.TURN_LEFT, 1);
       }
       if(event.getCode()==KeyCode.RIGHT)
       {
-        player.turnRight = true;
+        input(PlayerInput.TURN_RIGHT, 1);
       }
       //@Hector: Added player ability to push back zombies
-      if(event.getCode()==KeyCode.SPACE)
+      if(event.getCode()==KeyCode.SPACE && !player.isPushing())
       {
-        zombieHouse3d.getEntityManager().playerPush();
-        player.setPushing();
+        input(PlayerInput.PUSH, 1);
       }
 
       /*
@@ -112,27 +110,23 @@ public class KeyboardEventHandler implements EventHandler<KeyEvent>
     {
       if(event.getCode()==KeyCode.W)
       {
-        player.wDown.set(false);
-        player.velocity = 0;
+        input(PlayerInput.FORWARD, 0);
       }
       if(event.getCode()==KeyCode.S)
       {
-        player.sDown.set(false);
-        player.velocity = 0;
+        input(PlayerInput.BACKWARD, 0);
       }
       if(event.getCode()==KeyCode.A)
       {
-        player.aDown.set(false);
-        player.strafeVelocity = 0;
+        input(PlayerInput.STRAFE_LEFT, 0);
       }
       if(event.getCode()==KeyCode.D)
       {
-        player.dDown.set(false);
-        player.strafeVelocity = 0;
+        input(PlayerInput.STRAFE_RIGHT, 0);
       }
       if(event.getCode()==KeyCode.SHIFT)
       {
-        player.shiftPressed.set(false);
+        input(PlayerInput.SPRINT, 0);
       }
       if(event.getCode()==KeyCode.SPACE)
       {
@@ -140,20 +134,43 @@ public class KeyboardEventHandler implements EventHandler<KeyEvent>
       }
       if(event.getCode()==KeyCode.RIGHT)
       {
-        player.turnRight = false;
+        input(PlayerInput.TURN_RIGHT, 0);
       }
       if(event.getCode()==KeyCode.LEFT)
       {
-        player.turnLeft = false;
+        input(PlayerInput.TURN_LEFT, 0);
       }
       if(event.getCode()==KeyCode.F5)
       {
-        player.getHit(100);
+        input(PlayerInput.HIT, 100);
       }
       if(event.getCode() == KeyCode.F6)
       {
-        player.getHit(-200);
+        input(PlayerInput.HIT, -200);
+      }
+      // replay debugging: rewind or skip the past selves 5 seconds, change
+      // their speed, or put them back on the game's turn
+      if(event.getCode() == KeyCode.F7)
+      {
+        input(PlayerInput.REPLAY_REWIND, REPLAY_SKIP_TURNS);
+      }
+      if(event.getCode() == KeyCode.F8)
+      {
+        input(PlayerInput.REPLAY_REWIND, -REPLAY_SKIP_TURNS);
+      }
+      if(event.getCode() == KeyCode.F9)
+      {
+        input(PlayerInput.REPLAY_SPEED, 1);
+      }
+      if(event.getCode() == KeyCode.F10)
+      {
+        input(PlayerInput.REPLAY_LIVE, 1);
       }
     }
   }
-}
\ No newline at end of file
+
+  private void input(PlayerInput input, double value)
+  {
+    zombieHouse3d.getEntityManager().input(input, value);
+  }
+}
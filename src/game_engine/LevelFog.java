@@ -0,0 +1,215 @@
+package game_engine;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javafx.scene.paint.Color;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+
+/**
+ * Fogs the level by darkening it with distance from the player. Darkness is
+ * cut into a few bands, and every texture has one shared material per band,
+ * so the whole level uses at most (bands + 1) materials per texture.
+ *
+ * Each tile side is darkened by the distance of its center, as each tile was
+ * before the level was merged into chunks. A chunk within the far clip is
+ * drawn from its tile faces, sorted into one mesh per texture and band, and
+ * only the meshes of the bands that tiles moved into or out of are rebuilt
+ * when the player moves. A chunk that is all past the far clip is drawn from
+ * its merged meshes, all black.
+ */
+public class LevelFog
+{
+  private final int bands;
+  // [surface][band], made the first time they are needed
+  private final PhongMaterial[][] materials = new PhongMaterial[LevelMesher.Surface.values().length][];
+  // where the quads of one band are gathered before they go into its mesh
+  private final LevelMesher.MeshBuilder scratch = new LevelMesher.MeshBuilder();
+  private final boolean[] dirty;
+  private double lastX = Double.NaN;
+  private double lastZ = Double.NaN;
+  private double lastDistance = Double.NaN;
+  // counts the places the fog was worked out for
+  private int generation = 0;
+
+  /**
+   * @param bands
+   *          The number of steps between full light and black.
+   */
+  public LevelFog(int bands)
+  {
+    this.bands = Math.max(1, bands);
+    this.dirty = new boolean[this.bands + 1];
+  }
+
+  /**
+   * @return The material of a texture with no fog on it.
+   */
+  PhongMaterial clear(LevelMesher.Surface surface)
+  {
+    return material(surface, bands);
+  }
+
+  /**
+   * Darkens the tiles of the shown chunks as a function of the camera's
+   * visible distance, or FarClip, setting. The further away, the darker.
+   * Does nothing if the player hasn't moved since the last call.
+   *
+   * @param chunks
+   *          The chunks of the level.
+   * @param playerX
+   *          x coordinate of the player
+   * @param playerZ
+   *          z coordinate of the player
+   * @param visibleDistance
+   *          How far the camera can see.
+   */
+  public void apply(List<LevelMesher.Chunk> chunks, double playerX, double playerZ, double visibleDistance)
+  {
+    if (playerX != lastX || playerZ != lastZ || visibleDistance != lastDistance)
+    {
+      lastX = playerX;
+      lastZ = playerZ;
+      lastDistance = visibleDistance;
+      generation++;
+    }
+    for (LevelMesher.Chunk chunk : chunks)
+    {
+      // chunks that aren't drawn are fogged when they are shown again
+      if (chunk.group.getParent() == null || !chunk.group.isVisible()) continue;
+      if (chunk.generation == generation) continue;
+      chunk.generation = generation;
+      if (chunk.distanceSquared(playerX, playerZ) >= visibleDistance * visibleDistance)
+      {
+        darken(chunk);
+      }
+      else
+      {
+        band(chunk, playerX, playerZ, visibleDistance);
+      }
+    }
+  }
+
+  /**
+   * Draws a chunk that is all past the far clip from its merged meshes.
+   */
+  private void darken(LevelMesher.Chunk chunk)
+  {
+    for (LevelMesher.Part part : chunk.parts)
+    {
+      if (part.band != 0)
+      {
+        part.band = 0;
+        part.view.setMaterial(material(part.surface, 0));
+      }
+      part.view.setVisible(true);
+    }
+    if (!chunk.banded) return;
+    chunk.banded = false;
+    for (LevelMesher.TileFaces faces : chunk.tileFaces)
+    {
+      for (MeshView view : faces.views)
+      {
+        if (view != null) view.setVisible(false);
+      }
+    }
+  }
+
+  /**
+   * Draws a chunk from its tile faces, each in the band of its distance.
+   */
+  private void band(LevelMesher.Chunk chunk, double playerX, double playerZ, double visibleDistance)
+  {
+    for (LevelMesher.TileFaces faces : chunk.tileFaces)
+    {
+      if (faces.views == null)
+      {
+        faces.views = new MeshView[bands + 1];
+        faces.counts = new int[bands + 1];
+      }
+      Arrays.fill(dirty, false);
+      for (int quad = 0; quad < faces.bands.length; quad++)
+      {
+        double dx = faces.quads.centerX(quad) - playerX;
+        double dz = faces.quads.centerZ(quad) - playerZ;
+        double darknessValue = Math.max(0, 1.0 - Math.sqrt(dx * dx + dz * dz) / visibleDistance);
+        int band = (int) Math.round(darknessValue * bands);
+        int old = faces.bands[quad];
+        if (band != old)
+        {
+          if (old >= 0)
+          {
+            dirty[old] = true;
+            faces.counts[old]--;
+          }
+          dirty[band] = true;
+          faces.counts[band]++;
+          faces.bands[quad] = band;
+        }
+      }
+      for (int band = 0; band <= bands; band++)
+      {
+        if (dirty[band])
+        {
+          rebuild(chunk, faces, band);
+        }
+        else if (!chunk.banded && faces.views[band] != null)
+        {
+          faces.views[band].setVisible(faces.counts[band] > 0);
+        }
+      }
+    }
+    if (chunk.banded) return;
+    chunk.banded = true;
+    for (LevelMesher.Part part : chunk.parts)
+    {
+      part.view.setVisible(false);
+    }
+  }
+
+  /**
+   * Puts the quads of one band of a chunk's tile faces into the band's mesh.
+   */
+  private void rebuild(LevelMesher.Chunk chunk, LevelMesher.TileFaces faces, int band)
+  {
+    MeshView view = faces.views[band];
+    if (view == null)
+    {
+      view = new MeshView(new TriangleMesh());
+      view.setMaterial(material(faces.surface, band));
+      faces.views[band] = view;
+      chunk.group.getChildren().add(view);
+    }
+    scratch.clear();
+    for (int quad = 0; quad < faces.bands.length; quad++)
+    {
+      if (faces.bands[quad] == band)
+      {
+        scratch.copyQuad(faces.quads, quad);
+      }
+    }
+    scratch.fill((TriangleMesh) view.getMesh());
+    view.setVisible(faces.counts[band] > 0);
+  }
+
+  private PhongMaterial material(LevelMesher.Surface surface, int band)
+  {
+    PhongMaterial[] surfaceBands = materials[surface.ordinal()];
+    if (surfaceBands == null)
+    {
+      surfaceBands = new PhongMaterial[bands + 1];
+      materials[surface.ordinal()] = surfaceBands;
+    }
+    if (surfaceBands[band] == null)
+    {
+      double darkness = (double) band / bands;
+      PhongMaterial material = surface.newMaterial();
+      material.setDiffuseColor(Color.color(darkness, darkness, darkness));
+      material.setSpecularColor(Color.color(darkness, darkness, darkness));
+      surfaceBands[band] = material;
+    }
+    return surfaceBands[band];
+  }
+}
@@ -0,0 +1,657 @@
+package game_engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import javafx.scene.Group;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+import levels.TextureMaps;
+import levels.Tile;
+import levels.Tile.TileType;
+
+/**
+ * Turns the static geometry of a level into a few large meshes. The board is
+ * cut into square chunks of tiles, and all of the floor, ceiling and wall
+ * faces of a chunk that share a texture go into one TriangleMesh, so a chunk
+ * is drawn by one MeshView per texture instead of two Boxes per tile.
+ *
+ * Faces that can never be seen (wall faces against other walls or the edge of
+ * the board, and the tops and bottoms of walls) are left out. Neighbouring
+ * faces that lie in the same plane and have the same texture are merged into
+ * one quad: floors and ceilings into the largest rectangles that fit, walls
+ * into runs along each side. The texture repeats once per tile across a
+ * merged quad, so the level looks the same as it did with a Box per tile.
+ *
+ * Merged quads can span many tiles at different distances from the player,
+ * so every chunk also keeps its faces one quad per tile side, in TileFaces.
+ * LevelFog draws a chunk from those, sorted into one mesh per texture and fog
+ * band, while any of it is within the far clip, and from the merged meshes,
+ * all black, while it is not.
+ *
+ * The board is laid out like the Boxes were: tile [col][row] covers x from
+ * row to row + 1 and z from col to col + 1, the ceiling is at y = -1 and the
+ * floor at y = 1.
+ */
+public class LevelMesher
+{
+  private static final float CEILING_Y = -1;
+  private static final float FLOOR_Y = 1;
+
+  /**
+   * The textures a face of the level can have.
+   */
+  enum Surface
+  {
+    NONE(() -> new PhongMaterial(Color.LIGHTGRAY)),
+    STONE(TextureMaps::createStoneFloor),
+    BOOKS(TextureMaps::createBooks),
+    MARBLE(TextureMaps::createMarble),
+    HEDGE(TextureMaps::createHedge),
+    WOOD_CEILING(TextureMaps::createWoodCeiling),
+    CARPET(TextureMaps::createCarpet),
+    PARLOR_CEILING(TextureMaps::createParlorCeiling),
+    TILE(TextureMaps::createTile),
+    PURGOLA_CEILING(TextureMaps::createPurgolaCeiling),
+    PAVESTONE(TextureMaps::createPavestone),
+    IRON(TextureMaps::createIron);
+
+    private final Supplier<PhongMaterial> material;
+
+    Surface(Supplier<PhongMaterial> material)
+    {
+      this.material = material;
+    }
+
+    /**
+     * @return A new material with this texture.
+     */
+    PhongMaterial newMaterial()
+    {
+      return material.get();
+    }
+  }
+
+  /**
+   * One merged mesh of a chunk: all of the faces in the chunk with one
+   * texture. The material is one of the shared fog materials of its texture.
+   */
+  public static class Part
+  {
+    public final MeshView view;
+    final Surface surface;
+    // the fog band the part is drawn in
+    int band = -1;
+
+    Part(MeshView view, Surface surface)
+    {
+      this.view = view;
+      this.surface = surface;
+    }
+  }
+
+  /**
+   * The faces of a chunk with one texture, one quad per tile side, and the
+   * fog band each of them is in. LevelFog sorts them into one view per band.
+   */
+  static class TileFaces
+  {
+    final Surface surface;
+    final MeshBuilder quads;
+    // the band of each quad, -1 until the chunk is first fogged this way
+    final int[] bands;
+    // the view and the number of quads of each band, made by LevelFog
+    MeshView[] views;
+    int[] counts;
+
+    TileFaces(Surface surface, MeshBuilder quads)
+    {
+      this.surface = surface;
+      this.quads = quads;
+      this.bands = new int[quads.quadCount()];
+      Arrays.fill(bands, -1);
+    }
+  }
+
+  /**
+   * A square of tiles and the meshes that draw it.
+   */
+  public static class Chunk
+  {
+    // holds the MeshView of every part
+    public final Group group = new Group();
+    public final List<Part> parts = new ArrayList<>();
+    final List<TileFaces> tileFaces = new ArrayList<>();
+    // true while the chunk is drawn from its tile faces instead of its parts
+    boolean banded = false;
+    // the fog generation the chunk was worked out for
+    int generation = -1;
+    // the area of the board the chunk covers
+    public final double minX;
+    public final double minZ;
+    public final double maxX;
+    public final double maxZ;
+
+    Chunk(double minX, double minZ, double maxX, double maxZ)
+    {
+      this.minX = minX;
+      this.minZ = minZ;
+      this.maxX = maxX;
+      this.maxZ = maxZ;
+    }
+
+    /**
+     * @return The squared distance from the point to the closest point of
+     *         the chunk, 0 if the point is inside it.
+     */
+    public double distanceSquared(double x, double z)
+    {
+      return LevelMesher.distanceSquared(x, z, minX, minZ, maxX, maxZ);
+    }
+  }
+
+  /**
+   * Collects the quads of one texture in one chunk. Each quad is four
+   * vertices and two faces, added in order, so a quad can be copied out by
+   * its index.
+   */
+  static class MeshBuilder
+  {
+    private float[] points = new float[48];
+    private float[] texCoords = new float[32];
+    private int[] faces = new int[48];
+    private int vertexCount = 0;
+    private int faceCount = 0;
+
+    /**
+     * Adds a quad. The corners go around the quad, starting at the corner
+     * where the texture starts, and the texture is repeated u times from the
+     * first corner to the second and v times from the second to the third.
+     * The two triangles are wound so that they face the given normal.
+     */
+    void quad(float[] corners, float nx, float ny, float nz, float u, float v)
+    {
+      if ((vertexCount + 4) * 3 > points.length)
+      {
+        points = Arrays.copyOf(points, points.length * 2);
+        texCoords = Arrays.copyOf(texCoords, texCoords.length * 2);
+      }
+      if ((faceCount + 2) * 6 > faces.length)
+      {
+        faces = Arrays.copyOf(faces, faces.length * 2);
+      }
+      int first = vertexCount;
+      System.arraycopy(corners, 0, points, first * 3, 12);
+      float[] uv = {0, 0, u, 0, u, v, 0, v};
+      System.arraycopy(uv, 0, texCoords, first * 2, 8);
+      vertexCount += 4;
+
+      // JavaFX draws the side of a triangle that (b - a) x (c - a) points at
+      float ax = corners[3] - corners[0];
+      float ay = corners[4] - corners[1];
+      float az = corners[5] - corners[2];
+      float bx = corners[6] - corners[0];
+      float by = corners[7] - corners[1];
+      float bz = corners[8] - corners[2];
+      float facing = (ay * bz - az * by) * nx + (az * bx - ax * bz) * ny + (ax * by - ay * bx) * nz;
+      if (facing >= 0)
+      {
+        face(first, first + 1, first + 2);
+        face(first, first + 2, first + 3);
+      }
+      else
+      {
+        face(first, first + 2, first + 1);
+        face(first, first + 3, first + 2);
+      }
+    }
+
+    private void face(int a, int b, int c)
+    {
+      // points and texture coordinates are added in step, so share indices
+      int at = faceCount * 6;
+      faces[at] = a;
+      faces[at + 1] = a;
+      faces[at + 2] = b;
+      faces[at + 3] = b;
+      faces[at + 4] = c;
+      faces[at + 5] = c;
+      faceCount++;
+    }
+
+    /**
+     * @return The number of quads added.
+     */
+    int quadCount()
+    {
+      return vertexCount / 4;
+    }
+
+    /**
+     * @return The x coordinate of the center of a quad.
+     */
+    double centerX(int quad)
+    {
+      int at = quad * 12;
+      return (points[at] + points[at + 3] + points[at + 6] + points[at + 9]) / 4;
+    }
+
+    /**
+     * @return The z coordinate of the center of a quad.
+     */
+    double centerZ(int quad)
+    {
+      int at = quad * 12 + 2;
+      return (points[at] + points[at + 3] + points[at + 6] + points[at + 9]) / 4;
+    }
+
+    /**
+     * Adds a copy of a quad of another builder.
+     */
+    void copyQuad(MeshBuilder from, int quad)
+    {
+      if ((vertexCount + 4) * 3 > points.length)
+      {
+        points = Arrays.copyOf(points, points.length * 2);
+        texCoords = Arrays.copyOf(texCoords, texCoords.length * 2);
+      }
+      if ((faceCount + 2) * 6 > faces.length)
+      {
+        faces = Arrays.copyOf(faces, faces.length * 2);
+      }
+      System.arraycopy(from.points, quad * 12, points, vertexCount * 3, 12);
+      System.arraycopy(from.texCoords, quad * 8, texCoords, vertexCount * 2, 8);
+      // the faces point at the quad's own vertices, which move to the end
+      int shift = vertexCount - quad * 4;
+      for (int i = 0; i < 12; i++)
+      {
+        faces[faceCount * 6 + i] = from.faces[quad * 12 + i] + shift;
+      }
+      vertexCount += 4;
+      faceCount += 2;
+    }
+
+    /**
+     * Empties the builder so it can be filled again.
+     */
+    void clear()
+    {
+      vertexCount = 0;
+      faceCount = 0;
+    }
+
+    /**
+     * Puts the quads added into a mesh, replacing what it had.
+     */
+    void fill(TriangleMesh mesh)
+    {
+      mesh.getPoints().setAll(points, 0, vertexCount * 3);
+      mesh.getTexCoords().setAll(texCoords, 0, vertexCount * 2);
+      mesh.getFaces().setAll(faces, 0, faceCount * 6);
+    }
+
+    Part build(Surface surface, LevelFog fog)
+    {
+      TriangleMesh mesh = new TriangleMesh();
+      fill(mesh);
+      MeshView view = new MeshView(mesh);
+      view.setMaterial(fog.clear(surface));
+      return new Part(view, surface);
+    }
+  }
+
+  private final Tile[][] gameBoard;
+  private final int boardHeight;
+  private final int boardWidth;
+  private final int chunkSize;
+  private final LevelFog fog;
+
+  /**
+   * @param gameBoard
+   *          The board to build the meshes of.
+   * @param chunkSize
+   *          The number of tiles along each side of a chunk.
+   * @param fog
+   *          Hands out the materials of the meshes.
+   */
+  public LevelMesher(Tile[][] gameBoard, int chunkSize, LevelFog fog)
+  {
+    this.fog = fog;
+    this.gameBoard = gameBoard;
+    this.boardHeight = gameBoard.length;
+    this.boardWidth = gameBoard[0].length;
+    this.chunkSize = Math.max(1, chunkSize);
+  }
+
+  /**
+   * Builds the meshes of every chunk of the board. Chunks are listed row of
+   * chunks by row of chunks, and chunks with nothing to draw are left out.
+   *
+   * @return The chunks of the board.
+   */
+  public List<Chunk> build()
+  {
+    List<Chunk> chunks = new ArrayList<>();
+    for (int firstCol = 0; firstCol < boardHeight; firstCol += chunkSize)
+    {
+      for (int firstRow = 0; firstRow < boardWidth; firstRow += chunkSize)
+      {
+        int lastCol = Math.min(firstCol + chunkSize, boardHeight) - 1;
+        int lastRow = Math.min(firstRow + chunkSize, boardWidth) - 1;
+        Chunk chunk = buildChunk(firstCol, firstRow, lastCol, lastRow);
+        if (!chunk.parts.isEmpty())
+        {
+          chunks.add(chunk);
+        }
+      }
+    }
+    return chunks;
+  }
+
+  private Chunk buildChunk(int firstCol, int firstRow, int lastCol, int lastRow)
+  {
+    MeshBuilder[] builders = new MeshBuilder[Surface.values().length];
+    mergeFlats(builders, firstCol, firstRow, lastCol, lastRow, false, true);
+    mergeFlats(builders, firstCol, firstRow, lastCol, lastRow, true, true);
+    mergeWalls(builders, firstCol, firstRow, lastCol, lastRow, true);
+    MeshBuilder[] tiles = new MeshBuilder[Surface.values().length];
+    mergeFlats(tiles, firstCol, firstRow, lastCol, lastRow, false, false);
+    mergeFlats(tiles, firstCol, firstRow, lastCol, lastRow, true, false);
+    mergeWalls(tiles, firstCol, firstRow, lastCol, lastRow, false);
+
+    Chunk chunk = new Chunk(firstRow, firstCol, lastRow + 1, lastCol + 1);
+    for (Surface surface : Surface.values())
+    {
+      MeshBuilder builder = builders[surface.ordinal()];
+      if (builder != null)
+      {
+        Part part = builder.build(surface, fog);
+        chunk.parts.add(part);
+        chunk.group.getChildren().add(part.view);
+        chunk.tileFaces.add(new TileFaces(surface, tiles[surface.ordinal()]));
+      }
+    }
+    return chunk;
+  }
+
+  /**
+   * Covers the floors (or ceilings) of a chunk with as few rectangles as it
+   * can: each rectangle is grown as far as it goes along the row, then down
+   * the columns while every tile of its width matches. Unless merge is set,
+   * every tile gets a quad of its own instead.
+   */
+  private void mergeFlats(MeshBuilder[] builders, int firstCol, int firstRow, int lastCol, int lastRow,
+      boolean ceiling, boolean merge)
+  {
+    int height = lastCol - firstCol + 1;
+    int width = lastRow - firstRow + 1;
+    Surface[][] surfaces = new Surface[height][width];
+    for (int col = firstCol; col <= lastCol; col++)
+    {
+      for (int row = firstRow; row <= lastRow; row++)
+      {
+        Tile tile = gameBoard[col][row];
+        if (!isSolid(tile))
+        {
+          surfaces[col - firstCol][row - firstRow] = ceiling ? ceilingSurface(tile) : floorSurface(tile);
+        }
+      }
+    }
+
+    for (int c = 0; c < height; c++)
+    {
+      for (int r = 0; r < width; r++)
+      {
+        Surface surface = surfaces[c][r];
+        if (surface == null) continue;
+
+        int across = 1;
+        while (merge && r + across < width && surfaces[c][r + across] == surface)
+        {
+          across++;
+        }
+        int down = 1;
+        while (merge && c + down < height && rowMatches(surfaces[c + down], r, across, surface))
+        {
+          down++;
+        }
+        for (int i = 0; i < down; i++)
+        {
+          Arrays.fill(surfaces[c + i], r, r + across, null);
+        }
+
+        float x0 = firstRow + r;
+        float z0 = firstCol + c;
+        float x1 = x0 + across;
+        float z1 = z0 + down;
+        float y = ceiling ? CEILING_Y : FLOOR_Y;
+        float[] corners = {x0, y, z0, x1, y, z0, x1, y, z1, x0, y, z1};
+        // -y is up, so floors face -y and ceilings face +y
+        builder(builders, surface).quad(corners, 0, ceiling ? 1 : -1, 0, across, down);
+      }
+    }
+  }
+
+  private static boolean rowMatches(Surface[] surfaces, int from, int count, Surface surface)
+  {
+    for (int i = from; i < from + count; i++)
+    {
+      if (surfaces[i] != surface) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Adds the sides of the walls of a chunk that face open tiles. Sides that
+   * face the same way, lie on the same line and have the same texture are
+   * joined into one quad, unless merge is not set.
+   */
+  private void mergeWalls(MeshBuilder[] builders, int firstCol, int firstRow, int lastCol, int lastRow,
+      boolean merge)
+  {
+    // sides facing -z and +z run along x
+    for (int col = firstCol; col <= lastCol; col++)
+    {
+      wallRuns(builders, col, firstRow, lastRow, -1, true, merge);
+      wallRuns(builders, col, firstRow, lastRow, 1, true, merge);
+    }
+    // sides facing -x and +x run along z
+    for (int row = firstRow; row <= lastRow; row++)
+    {
+      wallRuns(builders, row, firstCol, lastCol, -1, false, merge);
+      wallRuns(builders, row, firstCol, lastCol, 1, false, merge);
+    }
+  }
+
+  /**
+   * Joins the wall sides along one line of tiles.
+   *
+   * @param line
+   *          The col (alongX) or row (!alongX) of the tiles.
+   * @param first
+   *          The first tile along the line.
+   * @param last
+   *          The last tile along the line.
+   * @param side
+   *          -1 or 1, the direction the sides face across the line.
+   * @param alongX
+   *          true if the line runs along x.
+   * @param merge
+   *          false to give every tile side a quad of its own.
+   */
+  private void wallRuns(MeshBuilder[] builders, int line, int first, int last, int side, boolean alongX,
+      boolean merge)
+  {
+    int start = first;
+    Surface running = null;
+    for (int i = first; i <= last + 1; i++)
+    {
+      Surface surface = i <= last ? exposedWall(alongX ? line : i, alongX ? i : line, alongX, side) : null;
+      if (surface != running || (!merge && running != null))
+      {
+        if (running != null)
+        {
+          wallQuad(builder(builders, running), line, start, i, side, alongX);
+        }
+        running = surface;
+        start = i;
+      }
+    }
+  }
+
+  /**
+   * @return The texture of the side of the tile facing the given way, or
+   *         null if there is no wall there or the side can't be seen.
+   */
+  private Surface exposedWall(int col, int row, boolean alongX, int side)
+  {
+    Tile tile = gameBoard[col][row];
+    if (!isSolid(tile)) return null;
+    int nextCol = alongX ? col + side : col;
+    int nextRow = alongX ? row : row + side;
+    if (nextCol < 0 || nextCol >= boardHeight || nextRow < 0 || nextRow >= boardWidth) return null;
+    if (isSolid(gameBoard[nextCol][nextRow])) return null;
+    return wallSurface(tile);
+  }
+
+  /**
+   * Adds the quad of a run of wall sides. The texture starts at the top left
+   * corner as seen from the open tiles and repeats once per tile.
+   */
+  private static void wallQuad(MeshBuilder builder, int line, int start, int end, int side, boolean alongX)
+  {
+    // the plane the sides lie in
+    float plane = side < 0 ? line : line + 1;
+    float left;
+    float right;
+    float[] corners;
+    if (alongX)
+    {
+      // facing -z, x grows to the right; facing +z it shrinks
+      left = side < 0 ? start : end;
+      right = side < 0 ? end : start;
+      corners = new float[] {left, CEILING_Y, plane, right, CEILING_Y, plane, right, FLOOR_Y, plane, left, FLOOR_Y,
+          plane};
+      builder.quad(corners, 0, 0, side, end - start, 1);
+    }
+    else
+    {
+      // facing -x, z shrinks to the right; facing +x it grows
+      left = side < 0 ? end : start;
+      right = side < 0 ? start : end;
+      corners = new float[] {plane, CEILING_Y, left, plane, CEILING_Y, right, plane, FLOOR_Y, right, plane, FLOOR_Y,
+          left};
+      builder.quad(corners, side, 0, 0, end - start, 1);
+    }
+  }
+
+  private static MeshBuilder builder(MeshBuilder[] builders, Surface surface)
+  {
+    MeshBuilder builder = builders[surface.ordinal()];
+    if (builder == null)
+    {
+      builder = new MeshBuilder();
+      builders[surface.ordinal()] = builder;
+    }
+    return builder;
+  }
+
+  /**
+   * @return true if the tile is a wall all the way up. Obstacles stand on
+   *         an open tile, so they have a floor and a ceiling.
+   */
+  private static boolean isSolid(Tile tile)
+  {
+    return tile.type == TileType.wall && !tile.isObstacle;
+  }
+
+  private static Surface wallSurface(Tile tile)
+  {
+    if (tile.isBorder) return Surface.STONE;
+    switch (tile.getRegion())
+    {
+      case 1:
+        return Surface.STONE;
+      case 2:
+        return Surface.BOOKS;
+      case 3:
+        return Surface.MARBLE;
+      case 4:
+        return Surface.HEDGE;
+      default:
+        return Surface.NONE;
+    }
+  }
+
+  private static Surface floorSurface(Tile tile)
+  {
+    switch (region(tile))
+    {
+      case 1:
+        return Surface.STONE;
+      case 2:
+        return Surface.CARPET;
+      case 3:
+        return Surface.TILE;
+      case 4:
+        return Surface.PAVESTONE;
+      case 5:
+        return Surface.IRON;
+      default:
+        return Surface.NONE;
+    }
+  }
+
+  private static Surface ceilingSurface(Tile tile)
+  {
+    switch (region(tile))
+    {
+      case 1:
+        return Surface.STONE;
+      case 2:
+        return Surface.WOOD_CEILING;
+      case 3:
+        return Surface.PARLOR_CEILING;
+      case 4:
+        return Surface.PURGOLA_CEILING;
+      case 5:
+        return Surface.IRON;
+      default:
+        return Surface.NONE;
+    }
+  }
+
+  /**
+   * @return The region whose floor and ceiling an open tile has, or 5 for
+   *         the exit. Obstacles are walls, so they go by their region.
+   */
+  private static int region(Tile tile)
+  {
+    switch (tile.type)
+    {
+      case region1:
+        return 1;
+      case region2:
+        return 2;
+      case region3:
+        return 3;
+      case region4:
+        return 4;
+      case exit:
+        return 5;
+      default:
+        return tile.getRegion();
+    }
+  }
+
+  private static double distanceSquared(double x, double z, double minX, double minZ, double maxX, double maxZ)
+  {
+    double dx = x < minX ? minX - x : x > maxX ? x - maxX : 0;
+    double dz = z < minZ ? minZ - z : z > maxZ ? z - maxZ : 0;
+    return dx * dx + dz * dz;
+  }
+}
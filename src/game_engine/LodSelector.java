@@ -0,0 +1,86 @@
+package game_engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.scene.shape.MeshView;
+
+/**
+ * Draws the models standing on the level, like the obstacles, at a level of
+ * detail that goes down with their distance from the player. A model only
+ * has its meshes swapped when moving changes its level.
+ */
+public class LodSelector
+{
+  /**
+   * The views of one copy of a model, and where it stands.
+   */
+  private static class Placed
+  {
+    final MeshLibrary.Model model;
+    final MeshView[] views;
+    final double x;
+    final double z;
+    int level = 0;
+
+    Placed(MeshLibrary.Model model, MeshView[] views, double x, double z)
+    {
+      this.model = model;
+      this.views = views;
+      this.x = x;
+      this.z = z;
+    }
+  }
+
+  private final List<Placed> placed = new ArrayList<>();
+  private double lastX = Double.NaN;
+  private double lastZ = Double.NaN;
+
+  /**
+   * Adds a copy of a model, drawn at full detail until the next update.
+   *
+   * @param x
+   *          x coordinate of the model
+   * @param z
+   *          z coordinate of the model
+   * @param model
+   *          The model the views were made from.
+   * @param views
+   *          The views made by model.newViews().
+   */
+  public void add(double x, double z, MeshLibrary.Model model, MeshView[] views)
+  {
+    if (model.getLevelCount() > 1)
+    {
+      placed.add(new Placed(model, views, x, z));
+    }
+  }
+
+  /**
+   * Gives every model the level of detail of its distance from the player.
+   * Does nothing if the player hasn't moved since the last call.
+   *
+   * @param playerX
+   *          x coordinate of the player
+   * @param playerZ
+   *          z coordinate of the player
+   */
+  public void update(double playerX, double playerZ)
+  {
+    if (playerX == lastX && playerZ == lastZ) return;
+    lastX = playerX;
+    lastZ = playerZ;
+    for (Placed thing : placed)
+    {
+      double dx = thing.x - playerX;
+      double dz = thing.z - playerZ;
+      int level = Math.min(thing.model.getLevelCount() - 1, MeshLibrary.levelAt(dx * dx + dz * dz));
+      if (level == thing.level) continue;
+      thing.level = level;
+      for (int i = 0; i < thing.views.length; i++)
+      {
+        thing.views[i].setMesh(thing.model.getMesh(level, i));
+      }
+    }
+  }
+}
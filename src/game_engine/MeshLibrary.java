@@ -0,0 +1,359 @@
+package game_engine;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.scene.Node;
+import javafx.scene.paint.Material;
+import javafx.scene.shape.Mesh;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.transform.Rotate;
+
+/**
+ * The animations of the creatures, each read from its OBJ files once and
+ * shared by every creature that plays it. A frame of an animation is the
+ * mesh and the material of one OBJ file; JavaFX lets one mesh and one
+ * material be used by any number of MeshViews, so a creature only needs a
+ * single MeshView that is pointed at the frame it shows (see AnimatedMesh).
+ *
+ * When every frame of an animation has the same faces and only its points
+ * move, the animation is also kept as morph targets: the points of the first
+ * frame and, for every frame, how far each point is from there. A creature
+ * can then blend any two frames into a mesh of its own (see morph).
+ *
+ * Models that don't move, like the obstacles, are shared the same way.
+ *
+ * Next to a model there may be simpler levels of detail of it, made by
+ * utilities.MeshSimplifier: name_lod1.obj, name_lod2.obj and so on. They are
+ * loaded with the model, and things further from the camera are drawn with
+ * the simpler ones (see levelAt).
+ *
+ * The library is kept for as long as the game runs, so a level that is
+ * restarted or a zombie made in the middle of a game doesn't read any files.
+ */
+public class MeshLibrary
+{
+  private static final Map<String, Animation> animations = new HashMap<>();
+  private static final Map<String, Model> models = new HashMap<>();
+
+  /**
+   * The frames of one animation.
+   */
+  public static class Animation
+  {
+    private final Mesh[] meshes;
+    private final Material[] materials;
+    // the points of frame 0, and each frame's points minus them; null if the
+    // frames don't share their faces
+    private float[] basePoints;
+    private float[][] deltas;
+    // the levels of detail, starting with the full animation
+    private Animation[] levels = {this};
+
+    private Animation(int frames)
+    {
+      meshes = new Mesh[frames];
+      materials = new Material[frames];
+    }
+
+    /**
+     * @return The number of frames in the animation.
+     */
+    public int getFrameCount()
+    {
+      return meshes.length;
+    }
+
+    /**
+     * @return The mesh of a frame.
+     */
+    public Mesh getMesh(int frame)
+    {
+      return meshes[frame];
+    }
+
+    /**
+     * @return The material of a frame.
+     */
+    public Material getMaterial(int frame)
+    {
+      return materials[frame];
+    }
+
+    /**
+     * @return The number of levels of detail, counting the full animation.
+     */
+    public int getLevelCount()
+    {
+      return levels.length;
+    }
+
+    /**
+     * @return A level of detail of the animation, 0 being the full
+     *         animation. Levels past the simplest give the simplest.
+     */
+    public Animation getLevel(int level)
+    {
+      return levels[Math.max(0, Math.min(levels.length - 1, level))];
+    }
+
+    /**
+     * @return true if the frames can be blended.
+     */
+    public boolean canMorph()
+    {
+      return deltas != null;
+    }
+
+    /**
+     * Gives a creature's mesh the faces of the animation and the points of
+     * its first frame, so it can be morphed.
+     */
+    void fillMorphMesh(TriangleMesh mesh)
+    {
+      TriangleMesh first = (TriangleMesh) meshes[0];
+      mesh.getPoints().setAll(basePoints);
+      mesh.getTexCoords().setAll(first.getTexCoords());
+      mesh.getFaces().setAll(first.getFaces());
+      mesh.getFaceSmoothingGroups().setAll(first.getFaceSmoothingGroups());
+    }
+
+    /**
+     * Works out the points of the animation at a place between two frames.
+     *
+     * @param position
+     *          The frame, where 2.25 is a quarter of the way from frame 2 to
+     *          frame 3.
+     * @param points
+     *          Gets the points. Has to be at least as long as the points of a
+     *          frame.
+     */
+    void morph(double position, float[] points)
+    {
+      int from = Math.max(0, Math.min(deltas.length - 1, (int) Math.floor(position)));
+      int to = Math.min(deltas.length - 1, from + 1);
+      float blend = (float) Math.max(0, Math.min(1, position - from));
+      float[] fromDeltas = deltas[from];
+      float[] toDeltas = deltas[to];
+      for (int i = 0; i < basePoints.length; i++)
+      {
+        points[i] = basePoints[i] + fromDeltas[i] + (toDeltas[i] - fromDeltas[i]) * blend;
+      }
+    }
+
+    /**
+     * @return The number of floats in the points of a frame.
+     */
+    int getPointCount()
+    {
+      return basePoints.length;
+    }
+
+    /**
+     * Keeps the frames as morph targets if they all have the faces of the
+     * first frame.
+     */
+    private void makeMorphTargets()
+    {
+      if (!(meshes[0] instanceof TriangleMesh)) return;
+      TriangleMesh first = (TriangleMesh) meshes[0];
+      int[] faces = first.getFaces().toArray(null);
+      float[] texCoords = first.getTexCoords().toArray(null);
+      float[] base = first.getPoints().toArray(null);
+      float[][] frameDeltas = new float[meshes.length][];
+      for (int frame = 0; frame < meshes.length; frame++)
+      {
+        if (!(meshes[frame] instanceof TriangleMesh)) return;
+        TriangleMesh mesh = (TriangleMesh) meshes[frame];
+        float[] points = mesh.getPoints().toArray(null);
+        if (points.length != base.length
+            || !Arrays.equals(faces, mesh.getFaces().toArray(null))
+            || !Arrays.equals(texCoords, mesh.getTexCoords().toArray(null)))
+        {
+          return;
+        }
+        for (int i = 0; i < points.length; i++)
+        {
+          points[i] -= base[i];
+        }
+        frameDeltas[frame] = points;
+      }
+      basePoints = base;
+      deltas = frameDeltas;
+    }
+  }
+
+  /**
+   * A model that doesn't move, with its levels of detail. Each level has a
+   * mesh for every view of the model, and the views keep the materials of
+   * the full model.
+   */
+  public static class Model
+  {
+    // [level][view]
+    private final Mesh[][] levels;
+    private final Material[] materials;
+
+    private Model(Mesh[][] levels, Material[] materials)
+    {
+      this.levels = levels;
+      this.materials = materials;
+    }
+
+    /**
+     * @return The number of levels of detail, counting the full model.
+     */
+    public int getLevelCount()
+    {
+      return levels.length;
+    }
+
+    /**
+     * @return The mesh of a view at a level of detail.
+     */
+    public Mesh getMesh(int level, int view)
+    {
+      return levels[level][view];
+    }
+
+    /**
+     * Makes the views of a new copy of the model, at full detail. Does not
+     * touch the scene, so it can be called off of the FX thread.
+     */
+    public MeshView[] newViews()
+    {
+      MeshView[] views = new MeshView[materials.length];
+      for (int i = 0; i < views.length; i++)
+      {
+        views[i] = new MeshView(levels[0][i]);
+        views[i].setMaterial(materials[i]);
+        views[i].setTranslateY(1);
+        views[i].setRotationAxis(Rotate.Y_AXIS);
+      }
+      return views;
+    }
+  }
+
+  /**
+   * @param distanceSquared
+   *          The square of the distance from the camera to a thing.
+   * @return The level of detail to draw the thing at. May be past the
+   *         simplest level the thing has.
+   */
+  public static int levelAt(double distanceSquared)
+  {
+    if (Attributes.Lod_Distance <= 0) return 0;
+    return (int) (Math.sqrt(distanceSquared) / Attributes.Lod_Distance);
+  }
+
+  /**
+   * Gets an animation, reading its OBJ files the first time it is asked for.
+   * The files are named path + frame number + ".obj", with the frame number
+   * padded to two digits.
+   *
+   * Synchronized so that a zombie can be meshed off of the FX thread.
+   *
+   * @param path
+   *          The name of the files without the frame number.
+   * @param first
+   *          The number of the first file.
+   * @param last
+   *          The number of the last file.
+   * @param step
+   *          How far apart the numbers of the files that are used are.
+   * @return The animation, with a frame for every file that was used.
+   */
+  public static synchronized Animation load(String path, int first, int last, int step)
+  {
+    String key = path + ":" + first + ":" + last + ":" + step;
+    Animation animation = animations.get(key);
+    if (animation != null) return animation;
+
+    animation = readAnimation(path, first, last, step, 0);
+    List<Animation> levels = new ArrayList<>();
+    levels.add(animation);
+    while (true)
+    {
+      Animation simpler = readAnimation(path, first, last, step, levels.size());
+      // the levels of a creature are blended or swapped alike
+      if (simpler == null || simpler.canMorph() != animation.canMorph()) break;
+      levels.add(simpler);
+    }
+    animation.levels = levels.toArray(new Animation[0]);
+    animations.put(key, animation);
+    return animation;
+  }
+
+  /**
+   * Gets a model that doesn't move, reading its OBJ file the first time it
+   * is asked for.
+   *
+   * @param path
+   *          The OBJ file of the model.
+   * @return The model, with the levels of detail found next to it.
+   */
+  public static synchronized Model loadModel(String path)
+  {
+    Model model = models.get(path);
+    if (model != null) return model;
+
+    List<Mesh[]> levels = new ArrayList<>();
+    Material[] materials = null;
+    for (int level = 0; level == 0 || new File(levelPath(path, level)).exists(); level++)
+    {
+      Node[] nodes = ZombieHouse3d.loadMeshViews(levelPath(path, level));
+      // a level that lost a part of the model can't stand in for it
+      if (materials != null && nodes.length != materials.length) break;
+      Mesh[] meshes = new Mesh[nodes.length];
+      if (materials == null) materials = new Material[nodes.length];
+      for (int i = 0; i < nodes.length; i++)
+      {
+        meshes[i] = ((MeshView) nodes[i]).getMesh();
+        if (level == 0) materials[i] = ((MeshView) nodes[i]).getMaterial();
+      }
+      levels.add(meshes);
+    }
+    model = new Model(levels.toArray(new Mesh[0][]), materials);
+    models.put(path, model);
+    return model;
+  }
+
+  /**
+   * Reads the frames of one level of detail of an animation.
+   *
+   * @return The frames, or null if a level past 0 hasn't been made for every
+   *         frame.
+   */
+  private static Animation readAnimation(String path, int first, int last, int step, int level)
+  {
+    Animation animation = new Animation((last - first) / step + 1);
+    for (int i = 0; i < animation.getFrameCount(); i++)
+    {
+      int number = first + i * step;
+      String file = levelPath(path + (number < 10 ? "0" : "") + number + ".obj", level);
+      if (level > 0 && !new File(file).exists()) return null;
+      Node[] nodes = ZombieHouse3d.loadMeshViews(file);
+      // every frame file holds a single mesh
+      MeshView view = (MeshView) nodes[0];
+      animation.meshes[i] = view.getMesh();
+      animation.materials[i] = view.getMaterial();
+    }
+    animation.makeMorphTargets();
+    return animation;
+  }
+
+  /**
+   * @return The name of a level of detail of an OBJ file, 0 being the file
+   *         itself.
+   */
+  private static String levelPath(String path, int level)
+  {
+    if (level == 0) return path;
+    return path.substring(0, path.length() - ".obj".length()) + "_lod" + level + ".obj";
+  }
+}
@@ -1,6 +1,7 @@
 package game_engine;
 
 import entities.Player;
+import entities.PlayerInput;
 /**
  * @author Jeffrey McCall
  * This class handles all of the mouse input
@@ -94,16 +95,15 @@ public class MouseEventHandler implements EventHandler<MouseEvent>
     Author: Nick Schrandt
 
     Added this to the handle so that the left mouse click will attack any zombies in the player's bounding circle.
-    Also sets the player to attacking, preventing any further attacks until the animation is complete. Also activates
+    The attack input also sets the player to attacking, preventing any further attacks until the animation is complete. Also activates
     the sword swing sound.
      */
     if(event.getEventType() == MouseEvent.MOUSE_CLICKED)
     {
       if (event.getButton() == MouseButton.PRIMARY && !player.isAttacking())
       {
-        player.setAttacking();
         zombiehouse.getEntityManager().soundManager.playSoundClip(Sound.swing);
-        zombiehouse.getEntityManager().playerAttack(player.boundingCircle);
+        zombiehouse.getEntityManager().input(PlayerInput.ATTACK, 1);
       }
     }
 
@@ -120,14 +120,12 @@ public class MouseEventHandler implements EventHandler<MouseEvent>
       // cursor is to the right of the center so rotate right
       if (currentX-10 > centerX)
       {
-        player.camera.setRotate(player.angle += rotationSpeed);
-        player.turnRight = true;
+        zombiehouse.getEntityManager().input(PlayerInput.ROTATE, rotationSpeed);
       }
       // cursor is to the left of the center so rotate left
       else if (currentX+10 < centerX)
       {
-        player.camera.setRotate(player.angle -= rotationSpeed);
-        player.turnLeft = true;
+        zombiehouse.getEntityManager().input(PlayerInput.ROTATE, -rotationSpeed);
       }
       robotMove = false;
     } else {
@@ -141,13 +139,11 @@ public class MouseEventHandler implements EventHandler<MouseEvent>
 
       // cursor is to the right of the center so rotate right
       if (currentX-2 > centerX) {
-        player.camera.setRotate(player.angle += rotationSpeed);
-        player.turnRight = true;
+        zombiehouse.getEntityManager().input(PlayerInput.ROTATE, rotationSpeed);
       }
       // cursor is to the left of the center so rotate left
       else if (currentX+2 < centerX) {
-        player.camera.setRotate(player.angle -= rotationSpeed);
-        player.turnLeft = true;
+        zombiehouse.getEntityManager().input(PlayerInput.ROTATE, -rotationSpeed);
       }
 
       try {
@@ -0,0 +1,273 @@
+package game_engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import levels.Tile;
+import levels.Tile.TileType;
+
+/**
+ * Works out which rooms of the house the player can see. Every room and
+ * hallway is closed off by walls, and the only ways to see out of one are
+ * the doorways ProceduralMap cut between them. So the room the player is in
+ * can be seen, and from there a room on the other side of a doorway can be
+ * seen if the doorway is in view; looking through that doorway narrows the
+ * view to the angles the doorway covers, and so on through the next ones.
+ *
+ * The rooms and doorways come from the room and doorTo of each tile. A
+ * doorway is treated as the whole box of its tiles, which lets through a
+ * little more than the real opening, never less.
+ */
+public class PortalCuller
+{
+  // how many doorways in a row are looked through
+  private static final int MAX_DEPTH = 16;
+
+  /**
+   * A doorway out of a room.
+   */
+  private static class Portal
+  {
+    // the room on the other side
+    final int to;
+    final double minX;
+    final double minZ;
+    final double maxX;
+    final double maxZ;
+
+    Portal(int to, double minX, double minZ, double maxX, double maxZ)
+    {
+      this.to = to;
+      this.minX = minX;
+      this.minZ = minZ;
+      this.maxX = maxX;
+      this.maxZ = maxZ;
+    }
+  }
+
+  private final Tile[][] gameBoard;
+  // the doorways out of each room
+  private final List<List<Portal>> portals = new ArrayList<>();
+  private final boolean[] visible;
+  // the rooms on the way to the room being looked into
+  private final boolean[] onPath;
+  private final double[] span = new double[2];
+  private ViewCone cone;
+  private double cameraX;
+  private double cameraZ;
+  private double distanceSquared;
+  // true when the player isn't in any room, so nothing is culled
+  private boolean allVisible = true;
+
+  /**
+   * @param gameBoard
+   *          The board, with the rooms and doorways of its tiles filled in.
+   */
+  public PortalCuller(Tile[][] gameBoard)
+  {
+    this.gameBoard = gameBoard;
+    int rooms = 0;
+    // the box of the doorway tiles between each pair of rooms, as minX, minZ, maxX, maxZ
+    Map<Long, double[]> doors = new HashMap<>();
+    for (int col = 0; col < gameBoard.length; col++)
+    {
+      for (int row = 0; row < gameBoard[col].length; row++)
+      {
+        Tile tile = gameBoard[col][row];
+        rooms = Math.max(rooms, Math.max(tile.room, tile.doorTo) + 1);
+        if (tile.room < 0 || tile.doorTo < 0) continue;
+        long key = ((long) tile.room << 32) | tile.doorTo;
+        double[] box = doors.get(key);
+        if (box == null)
+        {
+          doors.put(key, new double[] {row, col, row + 1, col + 1});
+        }
+        else
+        {
+          box[0] = Math.min(box[0], row);
+          box[1] = Math.min(box[1], col);
+          box[2] = Math.max(box[2], row + 1);
+          box[3] = Math.max(box[3], col + 1);
+        }
+      }
+    }
+
+    for (int i = 0; i < rooms; i++)
+    {
+      portals.add(new ArrayList<>());
+    }
+    for (Map.Entry<Long, double[]> door : doors.entrySet())
+    {
+      int from = (int) (door.getKey() >> 32);
+      int to = (int) (long) door.getKey();
+      double[] box = door.getValue();
+      portals.get(from).add(new Portal(to, box[0], box[1], box[2], box[3]));
+      portals.get(to).add(new Portal(from, box[0], box[1], box[2], box[3]));
+    }
+    visible = new boolean[rooms];
+    onPath = new boolean[rooms];
+  }
+
+  /**
+   * Finds the rooms that can be seen from where the camera is.
+   *
+   * @param cone
+   *          What the camera sees, already moved to where it is this frame.
+   * @param distanceSquared
+   *          Doorways further than this squared are not looked through.
+   */
+  public void update(ViewCone cone, double distanceSquared)
+  {
+    Arrays.fill(visible, false);
+    this.cone = cone;
+    cameraX = cone.getX();
+    cameraZ = cone.getZ();
+    this.distanceSquared = distanceSquared;
+
+    Tile tile = tileAt(cameraX, cameraZ);
+    allVisible = tile == null || tile.room < 0;
+    if (allVisible) return;
+    double halfAngle = cone.getHalfAngle();
+    lookInto(tile.room, -halfAngle, halfAngle, 0);
+    if (tile.doorTo >= 0)
+    {
+      lookInto(tile.doorTo, -halfAngle, halfAngle, 0);
+    }
+  }
+
+  /**
+   * Marks a room as seen and looks on through its doorways.
+   *
+   * @param from
+   *          The smallest angle that can be seen into the room.
+   * @param to
+   *          The largest angle that can be seen into the room.
+   */
+  private void lookInto(int room, double from, double to, int depth)
+  {
+    visible[room] = true;
+    if (depth == MAX_DEPTH) return;
+    onPath[room] = true;
+    for (Portal portal : portals.get(room))
+    {
+      if (onPath[portal.to]) continue;
+      double dx = Math.max(0, Math.max(portal.minX - cameraX, cameraX - portal.maxX));
+      double dz = Math.max(0, Math.max(portal.minZ - cameraZ, cameraZ - portal.maxZ));
+      if (dx * dx + dz * dz > distanceSquared) continue;
+
+      if (!cone.span(portal.minX, portal.minZ, portal.maxX, portal.maxZ, span))
+      {
+        // standing in the doorway
+        lookInto(portal.to, from, to, depth + 1);
+      }
+      else
+      {
+        double throughFrom = Math.max(from, span[0]);
+        double throughTo = Math.min(to, span[1]);
+        if (throughFrom < throughTo)
+        {
+          lookInto(portal.to, throughFrom, throughTo, depth + 1);
+        }
+      }
+    }
+    onPath[room] = false;
+  }
+
+  /**
+   * @return true if the room was seen on the last update. Rooms below 0
+   *         stand for places that are always drawn.
+   */
+  public boolean isRoomVisible(int room)
+  {
+    return allVisible || room < 0 || room >= visible.length || visible[room];
+  }
+
+  /**
+   * @return true if any of the rooms was seen on the last update.
+   */
+  public boolean isAnyVisible(int[] rooms)
+  {
+    for (int room : rooms)
+    {
+      if (isRoomVisible(room)) return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return true if a creature standing on the point could be seen.
+   */
+  public boolean isPointVisible(double x, double z)
+  {
+    Tile tile = tileAt(x, z);
+    if (tile == null || tile.room < 0) return true;
+    return isRoomVisible(tile.room) || (tile.doorTo >= 0 && isRoomVisible(tile.doorTo));
+  }
+
+  /**
+   * Lists the rooms whose floors, ceilings or walls are in a part of the
+   * board. A wall belongs to every room it faces, and the exit to none, so
+   * it is listed as -1 and always drawn.
+   *
+   * @return The rooms in the part of the board, with no repeats.
+   */
+  public int[] roomsIn(int firstCol, int firstRow, int lastCol, int lastRow)
+  {
+    boolean[] found = new boolean[visible.length + 1];
+    for (int col = firstCol; col <= lastCol; col++)
+    {
+      for (int row = firstRow; row <= lastRow; row++)
+      {
+        Tile tile = gameBoard[col][row];
+        if (tile.type == TileType.exit)
+        {
+          found[0] = true;
+        }
+        else if (tile.type == TileType.wall && !tile.isObstacle)
+        {
+          addRoom(found, col - 1, row);
+          addRoom(found, col + 1, row);
+          addRoom(found, col, row - 1);
+          addRoom(found, col, row + 1);
+        }
+        else
+        {
+          found[tile.room + 1] = true;
+          if (tile.doorTo >= 0) found[tile.doorTo + 1] = true;
+        }
+      }
+    }
+    int count = 0;
+    for (boolean room : found)
+    {
+      if (room) count++;
+    }
+    int[] rooms = new int[count];
+    count = 0;
+    for (int i = 0; i < found.length; i++)
+    {
+      if (found[i]) rooms[count++] = i - 1;
+    }
+    return rooms;
+  }
+
+  private void addRoom(boolean[] found, int col, int row)
+  {
+    if (col < 0 || col >= gameBoard.length || row < 0 || row >= gameBoard[col].length) return;
+    Tile tile = gameBoard[col][row];
+    if (tile.type == TileType.wall && !tile.isObstacle) return;
+    found[tile.room + 1] = true;
+    if (tile.doorTo >= 0) found[tile.doorTo + 1] = true;
+  }
+
+  private Tile tileAt(double x, double z)
+  {
+    int col = (int) Math.floor(z);
+    int row = (int) Math.floor(x);
+    if (col < 0 || col >= gameBoard.length || row < 0 || row >= gameBoard[col].length) return null;
+    return gameBoard[col][row];
+  }
+}
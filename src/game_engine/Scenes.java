@@ -481,11 +481,16 @@ public class Scenes
       gameStage.setResizable(false);
       gameStage.setOnCloseRequest(event ->
       {
-        if(threeDGameObject.getEntityManager() != null)
+        // the player is gone if the game was already torn down
+        if(threeDGameObject.getEntityManager() != null && threeDGameObject.getEntityManager().player != null)
         {
           threeDGameObject.getEntityManager().player.gameIsRunning.set(false);
           threeDGameObject.getEntityManager().gameIsRunning.set(false);
+          // stops the simulation and writes the input log and replay file
+          // of the life being played before the program exits
+          threeDGameObject.getEntityManager().destroyZombieHouse();
         }
+        System.exit(0);
       });
     }
     catch (Exception e)
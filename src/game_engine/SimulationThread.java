@@ -0,0 +1,87 @@
+package game_engine;
+
+import entities.EntityManager;
+
+/**
+ * Runs the simulation on its own thread at Attributes.Frame_Rate ticks per
+ * second, so that a slow tick never holds up drawing. Used when
+ * Attributes.Simulation_Thread is on; otherwise the game loop ticks the
+ * simulation on the FX thread itself. Either way the FX thread only draws the
+ * frame snapshots the simulation publishes.
+ */
+public class SimulationThread extends Thread
+{
+  private final ZombieHouse3d zombieHouse;
+  private final EntityManager entityManager;
+  private volatile boolean running = true;
+
+  /**
+   * @param zombieHouse
+   *          The game being simulated.
+   * @param entityManager
+   *          The entity manager to tick.
+   */
+  public SimulationThread(ZombieHouse3d zombieHouse, EntityManager entityManager)
+  {
+    super("Simulation");
+    setDaemon(true);
+    this.zombieHouse = zombieHouse;
+    this.entityManager = entityManager;
+  }
+
+  /**
+   * Ticks until the game is over or the thread is halted. If a tick runs
+   * late the next one starts right away, and if the simulation falls far
+   * behind it skips ahead instead of trying to catch up.
+   */
+  @Override
+  public void run()
+  {
+    long step = (long) (1000000000 / Attributes.Frame_Rate);
+    long nextTick = System.nanoTime();
+    while (running && !entityManager.isGameOver())
+    {
+      if (!zombieHouse.paused && !entityManager.player.isDead.get())
+      {
+        entityManager.tick();
+      }
+      else
+      {
+        entityManager.idleTick();
+      }
+
+      nextTick += step;
+      long wait = nextTick - System.nanoTime();
+      if (wait > 0)
+      {
+        try
+        {
+          sleep(wait / 1000000, (int) (wait % 1000000));
+        } catch (InterruptedException e)
+        {
+          return;
+        }
+      }
+      else if (wait < -5 * step)
+      {
+        nextTick = System.nanoTime();
+      }
+    }
+  }
+
+  /**
+   * Stops the thread and waits for the tick it is in to finish.
+   */
+  public void halt()
+  {
+    running = false;
+    if (currentThread() == this) return;
+    try
+    {
+      join();
+    } catch (InterruptedException e)
+    {
+      e.printStackTrace();
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package game_engine;
+
+import java.util.List;
+
+import entities.FrameSnapshot;
+import entities.Player;
+import javafx.scene.shape.Box;
+
+/**
+ * Puts the scene graph in the state of a FrameSnapshot. Runs on the FX
+ * thread, once per frame, with the newest snapshot the simulation published:
+ * moves the camera and the creature meshes, shows the right animation frames,
+ * sizes the health bars, fogs the level and updates the HP label.
+ */
+public class SnapshotRenderer
+{
+  // how far a creature's mesh may reach from where it stands
+  private static final double CREATURE_RADIUS = 1;
+
+  private final ZombieHouse3d zombieHouse;
+  private final Player player;
+  private final Scenes scenes;
+
+  // snapshots start at 0 and are numbered from 1 once published
+  private long lastFrameNumber = 0;
+  private int shownHitPoints = Integer.MIN_VALUE;
+
+  /**
+   * @param zombieHouse
+   *          The game whose scene is drawn.
+   * @param player
+   *          The player whose camera is moved.
+   * @param scenes
+   *          Holds the HP label.
+   */
+  public SnapshotRenderer(ZombieHouse3d zombieHouse, Player player, Scenes scenes)
+  {
+    this.zombieHouse = zombieHouse;
+    this.player = player;
+    this.scenes = scenes;
+  }
+
+  /**
+   * Draws a snapshot. Does nothing if it was already drawn.
+   *
+   * @param snapshot
+   *          The newest snapshot.
+   */
+  public void apply(FrameSnapshot snapshot)
+  {
+    if (snapshot.frameNumber == lastFrameNumber) return;
+    lastFrameNumber = snapshot.frameNumber;
+
+    player.updateView(snapshot.playerX, snapshot.playerZ, snapshot.playerAngle, snapshot.weaponPitch,
+        snapshot.weaponYaw, snapshot.weaponRotationRadius);
+    if (snapshot.playerHitPoints != shownHitPoints)
+    {
+      shownHitPoints = snapshot.playerHitPoints;
+      scenes.displayNewHP(shownHitPoints);
+    }
+
+    // creatures out of range, out of view or in rooms that can't be seen
+    // are hidden rather than taken out of the scene
+    double renderDistanceSquared = zombieHouse.getRenderDistanceSquared();
+    ViewCone cone = zombieHouse.getViewCone();
+    PortalCuller culler = zombieHouse.getPortalCuller();
+    for (int i = 0; i < snapshot.count; i++)
+    {
+      double dx = snapshot.x[i] - snapshot.playerX;
+      double dz = snapshot.z[i] - snapshot.playerZ;
+      boolean inRange = dx * dx + dz * dz < renderDistanceSquared
+          && (cone == null || cone.sees(snapshot.x[i], snapshot.z[i], CREATURE_RADIUS))
+          && (culler == null || culler.isPointVisible(snapshot.x[i], snapshot.z[i]));
+      AnimatedMesh meshes = snapshot.meshes[i];
+      meshes.setTranslateX(snapshot.x[i]);
+      meshes.setTranslateZ(snapshot.z[i]);
+      meshes.setRotate(snapshot.rotate[i]);
+      meshes.setVisible(snapshot.visible[i] && inRange);
+      // only the creatures that are drawn are animated, and only the near
+      // ones are blended between frames; the far ones are drawn in less detail
+      if (snapshot.visible[i] && inRange)
+      {
+        double distanceSquared = dx * dx + dz * dz;
+        meshes.setLevel(MeshLibrary.levelAt(distanceSquared));
+        meshes.showFrame(snapshot.frame[i], distanceSquared < Attributes.Morph_Distance_Squared);
+      }
+
+      // move healthbar with zombie
+      Box healthBar = snapshot.healthBars[i];
+      if (healthBar != null)
+      {
+        healthBar.setTranslateX(snapshot.x[i]);
+        healthBar.setTranslateZ(snapshot.z[i]);
+        healthBar.setRotate(snapshot.rotate[i]);
+        healthBar.setWidth(snapshot.health[i]);
+        healthBar.setVisible(inRange && snapshot.health[i] > 0);
+      }
+    }
+
+    //fog the level as a function of distance from edge of far clip
+    fadeToBlack(zombieHouse.getLevelChunks(), snapshot);
+  }
+
+  /**
+   * Darken the level as a function of camera's visible distance, or FarClip, setting
+   * @author Sarah Salmonson
+   */
+  private void fadeToBlack(List<LevelMesher.Chunk> chunks, FrameSnapshot snapshot)
+  {
+    double visibleDistance = zombieHouse.getCamera().getFarClip();
+    zombieHouse.getLevelFog().apply(chunks, snapshot.playerX, snapshot.playerZ, visibleDistance);
+  }
+}
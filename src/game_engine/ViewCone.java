@@ -0,0 +1,137 @@
+package game_engine;
+
+/**
+ * The part of the board the camera can see, seen from above. The walls of
+ * the house go from the floor to the ceiling and the camera only turns about
+ * the y axis, so what the camera sees is decided on the x-z plane: a wedge
+ * with its point at the player, centered on the way the player faces.
+ *
+ * Angles are in radians, measured from the way the player faces and growing
+ * in the same direction as Player.angle.
+ */
+public class ViewCone
+{
+  private double x;
+  private double z;
+  private double yaw;
+  private double halfAngle;
+  private final double[] scratch = new double[2];
+
+  /**
+   * Moves the cone.
+   *
+   * @param x
+   *          x coordinate of the camera
+   * @param z
+   *          z coordinate of the camera
+   * @param yawDegrees
+   *          The way the camera faces, as Player.angle.
+   * @param halfAngle
+   *          Half of the horizontal field of view.
+   */
+  public void set(double x, double z, double yawDegrees, double halfAngle)
+  {
+    this.x = x;
+    this.z = z;
+    this.yaw = Math.toRadians(yawDegrees);
+    this.halfAngle = halfAngle;
+  }
+
+  /**
+   * @return x coordinate of the camera
+   */
+  public double getX()
+  {
+    return x;
+  }
+
+  /**
+   * @return z coordinate of the camera
+   */
+  public double getZ()
+  {
+    return z;
+  }
+
+  /**
+   * @return Half of the horizontal field of view.
+   */
+  public double getHalfAngle()
+  {
+    return halfAngle;
+  }
+
+  /**
+   * @return true if any part of the box on the board is in view.
+   */
+  public boolean sees(double minX, double minZ, double maxX, double maxZ)
+  {
+    if (!span(minX, minZ, maxX, maxZ, scratch)) return true;
+    return scratch[1] >= -halfAngle && scratch[0] <= halfAngle;
+  }
+
+  /**
+   * @return true if any part of a circle on the board is in view.
+   */
+  public boolean sees(double px, double pz, double radius)
+  {
+    double dx = px - x;
+    double dz = pz - z;
+    double distance = Math.sqrt(dx * dx + dz * dz);
+    if (distance <= radius) return true;
+    return Math.abs(angleTo(px, pz)) <= halfAngle + Math.asin(radius / distance);
+  }
+
+  /**
+   * @return The angle of the point from the way the camera faces, between
+   *         -PI and PI.
+   */
+  public double angleTo(double px, double pz)
+  {
+    // the player moves along (sin angle, cos angle)
+    return wrap(Math.atan2(px - x, pz - z) - yaw);
+  }
+
+  /**
+   * Works out the range of angles a box on the board covers.
+   *
+   * @param span
+   *          Gets the smallest and the largest angle of the box. The largest
+   *          may be past PI if the box is right behind the camera.
+   * @return false if the camera is inside the box, which covers every angle.
+   */
+  public boolean span(double minX, double minZ, double maxX, double maxZ, double[] span)
+  {
+    if (x >= minX && x <= maxX && z >= minZ && z <= maxZ) return false;
+
+    // measured from the center so that a box behind the camera doesn't wrap
+    double center = angleTo((minX + maxX) / 2, (minZ + maxZ) / 2);
+    double centerAbsolute = center + yaw;
+    double from = 0;
+    double to = 0;
+    for (int corner = 0; corner < 4; corner++)
+    {
+      double cornerX = (corner & 1) == 0 ? minX : maxX;
+      double cornerZ = (corner & 2) == 0 ? minZ : maxZ;
+      double offset = wrap(Math.atan2(cornerX - x, cornerZ - z) - centerAbsolute);
+      from = Math.min(from, offset);
+      to = Math.max(to, offset);
+    }
+    span[0] = center + from;
+    span[1] = center + to;
+    return true;
+  }
+
+  private static double wrap(double angle)
+  {
+    while (angle > Math.PI)
+    {
+      angle -= 2 * Math.PI;
+    }
+    while (angle < -Math.PI)
+    {
+      angle += 2 * Math.PI;
+    }
+    return angle;
+  }
+}
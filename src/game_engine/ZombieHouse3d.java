@@ -2,12 +2,13 @@ package game_engine;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import com.interactivemesh.jfx.importer.obj.ObjImportOption;
 import com.interactivemesh.jfx.importer.obj.ObjModelImporter;
 
 import entities.EntityManager;
+import entities.FrameSnapshot;
 import entities.PastSelf;
 import entities.Player;
 import entities.Zombie;
@@ -15,6 +16,7 @@ import graphing.GraphNode;
 import graphing.TileGraph;
 import gui.Main;
 import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.scene.CacheHint;
 import javafx.scene.Cursor;
 import javafx.scene.Group;
@@ -30,6 +32,7 @@ import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Box;
+import javafx.scene.shape.MeshView;
 import javafx.scene.transform.Rotate;
 import javafx.scene.transform.Translate;
 import levels.ProceduralMap;
@@ -59,9 +62,24 @@ public class ZombieHouse3d
   public int boardWidth;
   public int boardHeight;
   public Tile[][] gameBoard;
-  private Box[][] ceilingAndWallDrawingBoard;
-  private Box[][] floorDrawingBoard;
-  private Node[][][] obstacleBoard;
+  // the floors, ceilings and walls, merged into a few meshes per chunk of the board
+  private List<LevelMesher.Chunk> levelChunks = new ArrayList<>();
+  // the shared materials the level is fogged with
+  private final LevelFog levelFog = new LevelFog(Attributes.Fog_Bands);
+  // attaches the chunks near the player to the root
+  private ChunkStreamer levelStreamer;
+  // draws the obstacles in less detail the further away they are
+  private LodSelector obstacleLods;
+  // chunks and creatures further than this from the player are not drawn
+  private double renderDistanceSquared = Attributes.Render_Distance_Squared;
+  // lowers the render distance and the update rates when frames run late
+  private FrameGovernor governor;
+  // finds the rooms seen through the doorways, null unless Attributes.Portal_Culling is on
+  private PortalCuller portalCuller;
+  // half of the camera's horizontal field of view, in radians
+  private double viewHalfAngle;
+  // what the camera sees this frame, seen from above
+  private final ViewCone viewCone = new ViewCone();
 
   public ArrayList<Box> exits = new ArrayList<>();
 
@@ -69,9 +87,13 @@ public class ZombieHouse3d
 
   // The list of walls used for collision detection and for location-based lighting.
   public List<Box> walls = new ArrayList<>();
-  //@Sarah: list of all other tiles to be used for location-based lighting
-  private List<Box> notWalls = new ArrayList<>();
   private List<Box> obstacles = new ArrayList<>();
+  // draws the snapshots published by the simulation
+  private SnapshotRenderer renderer;
+  // null unless Attributes.Simulation_Thread is on
+  private SimulationThread simulation;
+  // scene changes asked for by the simulation, run on the FX thread
+  private final ConcurrentLinkedQueue<Runnable> renderCommands = new ConcurrentLinkedQueue<>();
 
   //private static int zombieCounter = 0;
   public int numZombies = 0;
@@ -86,11 +108,13 @@ public class ZombieHouse3d
 
   private static final ObjModelImporter importer = new ObjModelImporter();
 
+  private static final int SCENE_WIDTH = 1280;
+  private static final int SCENE_HEIGHT = 800;
+
   private static final int TOTAL_FRAMES = 11;
   private static final int TOTAL_SELF_FRAMES = 13;
   private static final int LARGEST_ZOMBIE_FRAME = 20;
   private static final int LARGEST_PASTSELF_FRAME = 12;
-  private static Random random = new Random();
 
   private static final String Zombie = "Resources/Meshes/Zombie/Zombie";
   private static final String PastSelf = "Resources/Meshes/Past_Self/simpleMan";
@@ -147,8 +171,13 @@ public class ZombieHouse3d
    * The filepath to the mesh (.obj)
    * @return mesh
    * The Node[] that contains the model
+   *
+   * The importer is shared by every caller. The creature meshes are loaded
+   * once through the MeshLibrary and shared from then on, so this only runs
+   * while a level or the player is being set up; it is synchronized so that
+   * a MeshLibrary load from another thread can never interleave with one.
    */
-  public static Node[] loadMeshViews(String input)
+  public static synchronized Node[] loadMeshViews(String input)
   {
     importer.setOptions(ObjImportOption.NONE);
     importer.read(input);
@@ -181,7 +210,8 @@ public class ZombieHouse3d
     root.setCacheHint(CacheHint.SPEED);
 
     // initialize entity manager if not already initialized
-    if(entityManager == null)
+    boolean newGame = entityManager == null;
+    if(newGame)
     {
       entityManager = new EntityManager(soundManager, main, scenes);
     }
@@ -190,6 +220,10 @@ public class ZombieHouse3d
       entityManager.resetEM();
     }
     entityManager.setZombieHouse3d(this);
+    if(newGame)
+    {
+      entityManager.openReplays(gameBoard, difficulty);
+    }
     entityManager.createZombies(gameBoard, boardHeight, boardWidth);
     numZombies = entityManager.zombies.size();
 
@@ -199,108 +233,47 @@ public class ZombieHouse3d
         new Rotate(0, Rotate.X_AXIS), new Translate(0, -.5, 0));
     camera.setFieldOfView(70);
     camera.setFarClip(7);
+    governor = new FrameGovernor(camera.getFarClip());
+    applyQuality();
+    // the field of view is vertical, so widen it by the aspect of the sub scene
+    viewHalfAngle = Math.atan(Math.tan(Math.toRadians(camera.getFieldOfView() / 2)) * SCENE_WIDTH / SCENE_HEIGHT);
     camera.setRotationAxis(Rotate.Y_AXIS);
 
     // Initialize player
     entityManager.player = new Player(3, 0, 3, camera, entityManager, light);
     entityManager.player.camera = camera;
+    scenes.displayNewHP((int) entityManager.player.getHitPoints());
     root.getChildren().add(entityManager.player.getWeapon());
 
     // Lighting
     root.getChildren().add(entityManager.player.light);
 
-    obstacleBoard = new Node[boardHeight][boardWidth][];
     // Build the Scene Graph
-    //modified by Sarah Salmonson to "create" a new instance of phongmaterial for each wall, floor, or ceiling tile,
-    //rather than using the same shared copy and repeating it, which was a huge problem when implementing lighting
+    // the chunks are attached by the streamer on the first frame
+    levelChunks = new LevelMesher(gameBoard, Attributes.Level_Chunk_Size, levelFog).build();
+    levelStreamer = new ChunkStreamer(root, levelChunks, Attributes.Level_Chunk_Size, boardHeight, boardWidth);
+    obstacleLods = new LodSelector();
+    portalCuller = Attributes.Portal_Culling ? new PortalCuller(gameBoard) : null;
     for (int col = 0; col < boardHeight; col++)
     {
       for (int row = 0; row < boardWidth; row++)
       {
-        ceilingAndWallDrawingBoard[col][row] = new Box(1, 0, 1);
-        floorDrawingBoard[col][row] = new Box(1, 0, 1);
         switch (gameBoard[col][row].type)
         {
           case wall:
-            if(!gameBoard[col][row].isObstacle)
-            {
-              Tile currentTile = gameBoard[col][row];
-              ceilingAndWallDrawingBoard[col][row] = new Box(1, 2, 1);
-              if(currentTile.isBorder || currentTile.getRegion() == 1)
-              {
-                ceilingAndWallDrawingBoard[col][row].setMaterial(TextureMaps.createStoneFloor());
-              }
-              if(!currentTile.isBorder && currentTile.getRegion() == 2)
-              {
-                ceilingAndWallDrawingBoard[col][row].setMaterial(TextureMaps.createBooks());
-              }
-              if(!currentTile.isBorder && currentTile.getRegion() == 3)
-              {
-                ceilingAndWallDrawingBoard[col][row].setMaterial(TextureMaps.createMarble());
-              }
-              if(!currentTile.isBorder && currentTile.getRegion() == 4)
-              {
-                ceilingAndWallDrawingBoard[col][row].setMaterial(TextureMaps.createHedge());
-              }
-            }
-            else //is obstacle
+            if(gameBoard[col][row].isObstacle)
             {
-              makeObstacle(gameBoard[col][row], ceilingAndWallDrawingBoard[col][row], floorDrawingBoard[col][row],  col, row);
+              makeObstacle(gameBoard[col][row], col, row);
             }
             break;
-          case region1:
-            ceilingAndWallDrawingBoard[col][row].setMaterial(TextureMaps.createStoneFloor());
-            floorDrawingBoard[col][row].setMaterial(TextureMaps.createStoneFloor());
-            break;
-          case region2:
-            ceilingAndWallDrawingBoard[col][row].setMaterial(TextureMaps.createWoodCeiling());
-            floorDrawingBoard[col][row].setMaterial(TextureMaps.createCarpet());
-            break;
-          case region3:
-            ceilingAndWallDrawingBoard[col][row].setMaterial(TextureMaps.createParlorCeiling());
-            floorDrawingBoard[col][row].setMaterial(TextureMaps.createTile());
-            break;
-          case region4:
-            ceilingAndWallDrawingBoard[col][row].setMaterial(TextureMaps.createPurgolaCeiling());
-            floorDrawingBoard[col][row].setMaterial(TextureMaps.createPavestone());
-            break;
           case exit:
-            ceilingAndWallDrawingBoard[col][row].setMaterial(TextureMaps.createIron());
-            floorDrawingBoard[col][row].setMaterial(TextureMaps.createIron());
             Box box = new Box(1,2,1);
             box.setTranslateX(gameBoard[col][row].zPos);
             box.setTranslateZ(gameBoard[col][row].xPos);
             box.setMaterial(TextureMaps.createGlow());
             exits.add(box);
-
             break;
         }
-        if (col == 0 || col == boardHeight - 1 || row == 0
-                || row == boardWidth - 1)
-        {
-          ceilingAndWallDrawingBoard[col][row].setTranslateX(row + .5);
-          ceilingAndWallDrawingBoard[col][row].setTranslateZ(col + .5);
-          floorDrawingBoard[col][row].setTranslateX(row + .5);
-          floorDrawingBoard[col][row].setTranslateZ(col + .5);
-        } else
-        {
-          ceilingAndWallDrawingBoard[col][row]
-                  .setTranslateX(gameBoard[col][row].xPos);
-          ceilingAndWallDrawingBoard[col][row]
-                  .setTranslateZ(gameBoard[col][row].zPos);
-          floorDrawingBoard[col][row]
-                  .setTranslateX(gameBoard[col][row].xPos);
-          floorDrawingBoard[col][row]
-                  .setTranslateZ(gameBoard[col][row].zPos);
-        }
-        if (!gameBoard[col][row].type.equals(TileType.wall))
-        {
-          ceilingAndWallDrawingBoard[col][row].setTranslateY(-1);
-          floorDrawingBoard[col][row].setTranslateY(1);
-        }
-
-        root.getChildren().add(ceilingAndWallDrawingBoard[col][row]);
-        root.getChildren().add(floorDrawingBoard[col][row]);
       }
     }
     // Spawn zombies on board and create list of wall tiles for
@@ -311,15 +284,16 @@ public class ZombieHouse3d
       {
         if (gameBoard[col][row].getType().equals("wall") && !gameBoard[col][row].isObstacle)
         {
-          walls.add(ceilingAndWallDrawingBoard[col][row]);
+          // only collided with, the meshes of the chunks draw it
+          Box wall = new Box(1, 2, 1);
+          wall.setTranslateX(gameBoard[col][row].xPos);
+          wall.setTranslateZ(gameBoard[col][row].zPos);
+          walls.add(wall);
           entityManager.numTiles++;
           isWall = true;
         }
-        //@Sarah: build tile collection of all other tile types
         else
         {
-          notWalls.add(ceilingAndWallDrawingBoard[col][row]);
-          notWalls.add(floorDrawingBoard[col][row]);
           isWall = false;
         }
 
@@ -406,11 +380,21 @@ public class ZombieHouse3d
     exitLight = new PointLight();
     exitLight.setTranslateX(exits.get(0).getTranslateX());
     exitLight.setTranslateZ(exits.get(0).getTranslateZ());
-    root.getChildren().addAll(exits);
+    for (Box exit : exits)
+    {
+      // the box in exits is only collided with, like the walls; the chunk
+      // draws a copy of it
+      Box shown = new Box(exit.getWidth(), exit.getHeight(), exit.getDepth());
+      shown.setTranslateX(exit.getTranslateX());
+      shown.setTranslateZ(exit.getTranslateZ());
+      shown.setMaterial(exit.getMaterial());
+      levelStreamer.add(exit.getTranslateX(), exit.getTranslateZ(), shown);
+    }
     //root.getChildren().add(exitLight);
+    renderer = new SnapshotRenderer(this, entityManager.player, scenes);
 
     // Use a SubScene
-    SubScene subScene = new SubScene(root, 1280, 800, true,
+    SubScene subScene = new SubScene(root, SCENE_WIDTH, SCENE_HEIGHT, true,
         SceneAntialiasing.BALANCED);
     //@author: Sarah set subScene color to BLACK to prevent the BLUE rectangles in the distance
     subScene.setFill(Color.BLACK);
@@ -442,15 +426,15 @@ public class ZombieHouse3d
 
  creates an abstacle using a mesh and a collision box, can easily be made to work with different regions
   */
-  private void makeObstacle(Tile gameBoardTile, Box floorBox, Box roofBox, int col, int row)
+  private void makeObstacle(Tile gameBoardTile, int col, int row)
   {
+    // only collided with, like the walls; the meshes are what is drawn
     Box collisionBox = new Box(1,2,1);
-    collisionBox.setVisible(false);
     int randomRotateModifier;
 
-    Node[] obstacleMesh;
+    String obstaclePath;
     if(firstGame) {
-      randomRotateModifier = random.nextInt(4);
+      randomRotateModifier = GameRandom.stream(GameRandom.MESHES).nextInt(4);
       orientation.add(randomRotateModifier);
     } else {
       randomRotateModifier = orientation.get(currentObstacleIndex);
@@ -458,45 +442,23 @@ public class ZombieHouse3d
 
     int region = gameBoardTile.getRegion();
 
-    // floor tiles above and below mesh
-    if(region == 1)
-    {
-      floorBox.setMaterial(TextureMaps.createStoneFloor());
-      roofBox.setMaterial(TextureMaps.createStoneFloor());
-    }
-    if(region == 2)
-    {
-      floorBox.setMaterial(TextureMaps.createWoodCeiling());
-      roofBox.setMaterial(TextureMaps.createCarpet());
-    }
-    if(region == 3)
-    {
-      floorBox.setMaterial(TextureMaps.createParlorCeiling());
-      roofBox.setMaterial(TextureMaps.createTile());
-    }
-    if(region == 4)
-    {
-      floorBox.setMaterial(TextureMaps.createPurgolaCeiling());
-      roofBox.setMaterial(TextureMaps.createPavestone());
-    }
-
     if(firstGame) {
       if (region < 4) {
         int[] distribution = regions[region - 1];
         int dLength = distribution.length;
-        int meshIndex = distribution[random.nextInt(dLength)];
+        int meshIndex = distribution[GameRandom.stream(GameRandom.MESHES).nextInt(dLength)];
         obstacleList.add(meshIndex);
-        obstacleMesh = loadMeshViews(obstacleStrings[meshIndex]);
+        obstaclePath = obstacleStrings[meshIndex];
         ++maxObstacleIndex;
       }
-      else obstacleMesh = loadMeshViews(TOMBSTONE);
+      else obstaclePath = TOMBSTONE;
     }
     else {
       if(region < 4) {
         int meshIndex = obstacleList.get(currentObstacleIndex);
-        obstacleMesh = loadMeshViews(obstacleStrings[meshIndex]);
+        obstaclePath = obstacleStrings[meshIndex];
         currentObstacleIndex++;
-      } else obstacleMesh = loadMeshViews(TOMBSTONE);
+      } else obstaclePath = TOMBSTONE;
     }
 
     if(currentObstacleIndex >= maxObstacleIndex)
@@ -504,9 +466,10 @@ public class ZombieHouse3d
       currentObstacleIndex = 0;
     }
 
-    obstacleBoard[col][row] = obstacleMesh;
-    root.getChildren().addAll(obstacleMesh);
-    root.getChildren().add(collisionBox);
+    MeshLibrary.Model model = MeshLibrary.loadModel(obstaclePath);
+    MeshView[] obstacleMesh = model.newViews();
+    levelStreamer.add(gameBoard[col][row].xPos, gameBoard[col][row].zPos, obstacleMesh);
+    obstacleLods.add(gameBoard[col][row].xPos, gameBoard[col][row].zPos, model, obstacleMesh);
 
     for(int i = 0; i < obstacleMesh.length; i++)
     {
@@ -519,12 +482,6 @@ public class ZombieHouse3d
     collisionBox.setTranslateZ(gameBoard[col][row].zPos);
     collisionBox.setTranslateX(gameBoard[col][row].xPos);
     obstacles.add(collisionBox);
-
-    floorBox.setTranslateY(-1);
-    roofBox.setTranslateY(1);
-
-    notWalls.add(floorBox);
-    notWalls.add(roofBox);
   }
 
   /**@aurhor Hector Carrillo and Nick Schrandt
@@ -535,38 +492,15 @@ public class ZombieHouse3d
    */
   public void makePastSelf(PastSelf self)
   {
-    Node[] playerMesh;
-    for(int currentFrame = 0; currentFrame<= LARGEST_PASTSELF_FRAME; currentFrame++)
-    {
-      if(currentFrame < 10)
-      {
-        playerMesh = loadMeshViews(PastSelf + "0" + currentFrame + ".obj");
-        for(int i = 0; i < playerMesh.length; i++)
-        {
-          playerMesh[i].setVisible(false);
-        }
-        self.selfMeshes.getChildren().addAll(playerMesh);
-        self.selfMeshes.setScaleX(.4);
-        self.selfMeshes.setScaleY(.4);
-        self.selfMeshes.setScaleZ(.4);
-        self.selfMeshes.setTranslateY(-.5);
-      }
-      else
-      {
-        playerMesh = loadMeshViews(PastSelf + currentFrame + ".obj");
-
-        for(int j = 0; j < playerMesh.length; j++)
-        {
-          playerMesh[j].setVisible(false);
-        }
-
-        self.selfMeshes.getChildren().addAll(playerMesh);
-      }
-    }
-    self.currentFrame = 1 + random.nextInt(TOTAL_SELF_FRAMES -2);
-    self.selfMeshes.getChildren().get(self.currentFrame).setVisible(true);
-    self.selfMeshes.setRotationAxis(Rotate.Y_AXIS);
-    root.getChildren().addAll(self.selfMeshes);
+    AnimatedMesh selfMeshes = new AnimatedMesh(MeshLibrary.load(PastSelf, 0, LARGEST_PASTSELF_FRAME, 1));
+    selfMeshes.getView().setScaleX(.4);
+    selfMeshes.getView().setScaleY(.4);
+    selfMeshes.getView().setScaleZ(.4);
+    selfMeshes.setTranslateY(-.5);
+    self.selfMeshes = selfMeshes;
+    entityManager.world.startAnimation(self.id, selfMeshes,
+        1 + GameRandom.stream(GameRandom.MESHES).nextInt(TOTAL_SELF_FRAMES -2));
+    root.getChildren().addAll(selfMeshes);
   }
 
   /**@aurhor Hector Carrillo and Nick Schrandt
@@ -577,34 +511,11 @@ public class ZombieHouse3d
    */
   public void makePastZombie(PastSelf zombie)
   {
-    Node[] zombieMesh;
-    for(int currentFrame = 0; currentFrame<= LARGEST_ZOMBIE_FRAME; currentFrame++)
-    {
-      if(currentFrame < 10)
-      {
-        zombieMesh = loadMeshViews(Zombie + "0" + currentFrame + ".obj");
-        for(int i = 0; i < zombieMesh.length; i++)
-        {
-          zombieMesh[i].setVisible(false);
-        }
-        zombie.selfMeshes.getChildren().addAll(zombieMesh);
-      }
-      else
-      {
-        zombieMesh = loadMeshViews(Zombie + currentFrame + ".obj");
-
-        for(int j = 0; j < zombieMesh.length; j++)
-        {
-          zombieMesh[j].setVisible(false);
-        }
-
-        zombie.selfMeshes.getChildren().addAll(zombieMesh);
-      }
-    }
-    zombie.currentFrame = 1 + random.nextInt(TOTAL_FRAMES -2);
-    zombie.selfMeshes.getChildren().get(zombie.currentFrame).setVisible(true);
-    zombie.selfMeshes.setRotationAxis(Rotate.Y_AXIS);
-    root.getChildren().addAll(zombie.selfMeshes);
+    AnimatedMesh zombieMeshes = makeZombieFrames(false);
+    zombie.selfMeshes = zombieMeshes;
+    entityManager.world.startAnimation(zombie.id, zombieMeshes,
+        1 + GameRandom.stream(GameRandom.MESHES).nextInt(TOTAL_FRAMES -2));
+    root.getChildren().addAll(zombieMeshes);
   }
 
   /**
@@ -619,7 +530,7 @@ public class ZombieHouse3d
     }
     for (PastSelf pastSelf : entityManager.pastSelves)
     {
-      pastSelf.selfMeshes.setVisible(true);
+      entityManager.world.visible[pastSelf.id] = true;
       if(pastSelf.isZombie())
       {
         makePastZombie(pastSelf);
@@ -635,118 +546,56 @@ public class ZombieHouse3d
    *
    * note: I pulled this method out of makeZombieMeshGroup so I could call it when making a bifurcated zombie. -Nick
    *
+   * Zombies made in the middle of a game are meshed here as well. Their frames
+   * are shared from the MeshLibrary, so making one only builds a single view,
+   * and no meshed zombies are kept in reserve for them.
+   *
    * @param zombie to be meshed
    */
   public void meshZombie(Zombie zombie) {
-    Node[] zombieMesh;
-    for(int currentFrame = 0; currentFrame <= LARGEST_ZOMBIE_FRAME; currentFrame+=2)
-    {
-      if(currentFrame < 10)
-      {
-        zombieMesh = loadMeshViews(Zombie + "0" + currentFrame + ".obj");
-        for(int j = 0; j < zombieMesh.length; j++)
-        {
-          zombieMesh[j].setVisible(false);
-        }
-        zombie.zombieMeshes.getChildren().addAll(zombieMesh);
-      }
-      else
-      {
-        zombieMesh = loadMeshViews(Zombie + currentFrame + ".obj");
-
-        for(int j = 0; j < zombieMesh.length; j++)
-        {
-          zombieMesh[j].setVisible(false);
-        }
-
-        zombie.zombieMeshes.getChildren().addAll(zombieMesh);
-      }
-      // makes master zombie bigger
-      if(zombie.isMasterZombie)
-      {
-        for(int i = 0; i< zombieMesh.length; i++)
-        {
-          zombieMesh[i].setScaleX(2);
-          zombieMesh[i].setScaleY(1.1);
-          zombieMesh[i].setScaleZ(1.1);
-          zombieMesh[i].setTranslateY(1);
-        }
-      }
-    }
-    // Each zombie starts at a random frame so that they don't all look alike
-    // Does not start at 0 frame because it causes a bug
-    zombie.currentFrame = 1 + random.nextInt(TOTAL_FRAMES -2);
-    zombie.zombieMeshes.getChildren().get(zombie.currentFrame).setVisible(true);
-    zombie.zombieMeshes.setRotationAxis(Rotate.Y_AXIS);
-    root.getChildren().addAll(zombie.zombieMeshes);
-    root.getChildren().add(zombie.getHealthBar());
+    zombie.zombieMeshes = makeZombieFrames(zombie.isMasterZombie);
+    showZombie(zombie);
   }
 
   /**
-   * @author Hector Carrillo
-   * this bit of code is so that the engine only renders objects close to the player to prevent lagging
+   * Starts the animation of a zombie whose meshes are loaded and adds it to
+   * the scene.
    */
-  private void gameDistanceBasedRendering(int distanceSquared)
+  private void showZombie(Zombie zombie)
   {
-    // used for distance calculation
-    double distanceFromPlayerSquared;
-    double playerZ = entityManager.player.boundingCircle.getTranslateZ();
-    double playerX = entityManager.player.boundingCircle.getTranslateX();
-    double zombieZ;
-    double zombieX;
-    double pastSelfZ;
-    double pastSelfX;
-
-    root.getChildren().clear();
-    root.getChildren().add(entityManager.player.swordGroup);
-
-    // calculates distances to static objects if the distance squared to the player is less than 60 it is rendered
-    for(int col = 0; col < boardHeight; col++)
-    {
-      for(int row = 0; row < boardWidth; row++)
-      {
-        distanceFromPlayerSquared = ((col-playerZ) * (col-playerZ)) + ((row-playerX) * (row-playerX));
-
-        if(distanceFromPlayerSquared < distanceSquared) {
-          root.getChildren().add(floorDrawingBoard[col][row]);
-          root.getChildren().add(ceilingAndWallDrawingBoard[col][row]);
-          if(obstacleBoard[col][row] != null) {
-            root.getChildren().addAll(obstacleBoard[col][row]);
-          }
-        }
-      }
-    }
-
-    // calculates distance to zombies
-    for(Zombie zombie : entityManager.zombies)
+    // Each zombie starts at a random frame so that they don't all look alike
+    // Does not start at 0 frame because it causes a bug
+    entityManager.world.startAnimation(zombie.id, zombie.zombieMeshes,
+        1 + GameRandom.stream(GameRandom.MESHES).nextInt(TOTAL_FRAMES -2));
+    AnimatedMesh meshes = zombie.zombieMeshes;
+    Box healthBar = zombie.getHealthBar();
+    runOnRender(() ->
     {
-      zombieZ = zombie.zombieCylinder.getTranslateZ();
-      zombieX = zombie.zombieCylinder.getTranslateX();
-      distanceFromPlayerSquared = ((zombieZ-playerZ) * (zombieZ-playerZ)) + ((zombieX-playerX) * (zombieX-playerX));
-      if(distanceFromPlayerSquared < distanceSquared) {
-        root.getChildren().addAll(zombie.zombieMeshes);
-        root.getChildren().add(zombie.getHealthBar());
-      }
-    }
+      root.getChildren().addAll(meshes);
+      root.getChildren().add(healthBar);
+    });
+  }
 
-    // calculates distance to zombies
-    for(PastSelf pastSelf : entityManager.pastSelves)
+  /**@author Hector Carillo
+   *
+   * Makes the mesh of a zombie, playing the zombie walk animation that every
+   * zombie shares. Does not touch the scene, so it can be called off of the
+   * FX thread.
+   *
+   * @param masterZombie true to make the zombie bigger
+   * @return mesh showing the first frame of the walk
+   */
+  static AnimatedMesh makeZombieFrames(boolean masterZombie)
+  {
+    AnimatedMesh zombieMeshes = new AnimatedMesh(MeshLibrary.load(Zombie, 0, LARGEST_ZOMBIE_FRAME, 2));
+    // makes master zombie bigger
+    if(masterZombie)
     {
-      pastSelfZ = pastSelf.getBoundingCircle().getTranslateZ();
-      pastSelfX = pastSelf.getBoundingCircle().getTranslateX();
-      distanceFromPlayerSquared = ((pastSelfZ-playerZ) * (pastSelfZ-playerZ)) + ((pastSelfX-playerX) * (pastSelfX-playerX));
-      if(distanceFromPlayerSquared < distanceSquared) {
-        root.getChildren().addAll(pastSelf.selfMeshes);
-      }
-    }
-
-    // exit distance calculation
-    double exitX = exits.get(0).getTranslateX();
-    double exitZ = exits.get(0).getTranslateZ();
-    distanceFromPlayerSquared = ((exitZ-playerZ) * (exitZ-playerZ)) + ((exitX-playerX) * (exitX-playerX));
-    if(distanceFromPlayerSquared < distanceSquared) {
-      root.getChildren().addAll(exits);
+      zombieMeshes.getView().setScaleX(2);
+      zombieMeshes.getView().setScaleY(1.1);
+      zombieMeshes.getView().setScaleZ(1.1);
     }
+    return zombieMeshes;
   }
 
   /**
@@ -755,31 +604,61 @@ public class ZombieHouse3d
    */
   private class MainGameLoop extends AnimationTimer
   {
-    int timekeeper = 30;
     /**
-     * Call the appropriate method to update the attributes of the
-     * entities in the game.
+     * Ticks the simulation, unless it runs on its own thread, then draws the
+     * newest snapshot it published.
      */
     public void handle(long now)
     {
-      // only update every second (player range is so limited this might not hurt)
-      ++timekeeper;
-      if(timekeeper == 30)
+      long workStart = System.nanoTime();
+      if(simulation == null)
       {
-        gameDistanceBasedRendering(110);
-        timekeeper = 0;
+        if(!paused && !entityManager.player.isDead.get())
+        {
+          entityManager.tick();
+        }
+        else
+        {
+          entityManager.idleTick();
+        }
       }
-      if(!paused && !entityManager.player.isDead.get())
+      runRenderCommands();
+      // a render command may have ended the game
+      if(entityManager == null) return;
+
+      FrameSnapshot snapshot = entityManager.snapshots.getLatest();
+      // only renders the level close to the player to prevent lagging
+      levelStreamer.update(snapshot.playerX, snapshot.playerZ, renderDistanceSquared);
+      // and of that, only what is in view and in the rooms that can be seen from where the player is
+      viewCone.set(snapshot.playerX, snapshot.playerZ, snapshot.playerAngle, viewHalfAngle);
+      if(portalCuller != null)
       {
-        entityManager.tick();
+        portalCuller.update(viewCone, renderDistanceSquared);
       }
-      else
+      levelStreamer.cull(Attributes.Frustum_Culling ? viewCone : null, portalCuller);
+      obstacleLods.update(snapshot.playerX, snapshot.playerZ);
+      renderer.apply(snapshot);
+
+      // the new quality is drawn from the next frame on
+      if(governor.update(now, System.nanoTime() - workStart, entityManager.getLastTickNanos()))
       {
-        entityManager.player.tick();
+        applyQuality();
       }
     }
   }
 
+  /**
+   * Sets the render distance, the fog and the update rates to the quality
+   * the frame governor picked.
+   */
+  private void applyQuality()
+  {
+    renderDistanceSquared = governor.getRenderDistanceSquared();
+    camera.setFarClip(governor.getFarClip());
+    entityManager.animationInterval = governor.getAnimationInterval();
+    entityManager.farZombieStride = governor.getFarZombieStride();
+  }
+
   /**
    * @param scenes
    *        The scenes into which all of the attributes of the game
@@ -807,19 +686,73 @@ public class ZombieHouse3d
 
     gameLoop = new MainGameLoop();
     gameLoop.start();
+    if(Attributes.Simulation_Thread)
+    {
+      simulation = new SimulationThread(this, entityManager);
+      simulation.start();
+    }
     return scene;
   }
 
+  /**
+   * Runs a change to the scene graph on the FX thread. Called from the
+   * simulation, which may be running on its own thread: the change is run
+   * right away on the FX thread, otherwise it is queued for the next frame.
+   *
+   * @param command
+   *          The change to make.
+   */
+  public void runOnRender(Runnable command)
+  {
+    if(Platform.isFxApplicationThread())
+    {
+      command.run();
+    }
+    else
+    {
+      renderCommands.add(command);
+    }
+  }
+
+  /**
+   * Runs the scene changes queued by the simulation.
+   */
+  private void runRenderCommands()
+  {
+    Runnable command;
+    while((command = renderCommands.poll()) != null)
+    {
+      command.run();
+    }
+  }
+
+  /**
+   * Stops the game loop and the simulation thread.
+   */
+  public void stopGameLoop()
+  {
+    gameLoop.stop();
+    stopSimulation();
+  }
+
+  private void stopSimulation()
+  {
+    if(simulation != null)
+    {
+      simulation.halt();
+      simulation = null;
+    }
+  }
+
   /**
    * Generates gameBoard and builds 3D wall, ceiling, and floor objects
    */
   void build3DMap ()
   {
+    GameRandom.newGame();
     gameBoard = ProceduralMap.generateMap(Attributes.Map_Width, Attributes.Map_Height, difficulty);
     boardWidth = gameBoard[0].length;
     boardHeight = gameBoard.length;
-    ceilingAndWallDrawingBoard = new Box[boardWidth][boardHeight];
-    floorDrawingBoard = new Box[boardWidth][boardHeight];
   }
 
   /**
@@ -827,14 +760,18 @@ public class ZombieHouse3d
    */
   public void dispose()
   {
-    gameLoop.stop();
+    stopGameLoop();
+    renderCommands.clear();
+    renderer = null;
     entityManager = null;
     scene = null;
     camera = null;
     light = null;
     gameBoard = null;
     walls.clear();
+    obstacles.clear();
     exits.clear();
+    levelChunks.clear();
     root.getChildren().clear();
   }
 
@@ -851,13 +788,46 @@ public class ZombieHouse3d
     return this.camera;
   }
   /**
-   * Getter for the ArrayList notWalls which contains all Tile objects that are not wall tiles
-   * @author: Sarah Salmonson
-   * @return List of all Tile objects that are not wall tiles
+   * @return The square of the distance from the player within which the
+   *         level and the creatures are drawn
+   */
+  public double getRenderDistanceSquared()
+  {
+    return this.renderDistanceSquared;
+  }
+
+  /**
+   * @return What the camera sees this frame, or null if frustum culling is
+   *         off
+   */
+  public ViewCone getViewCone()
+  {
+    return Attributes.Frustum_Culling ? this.viewCone : null;
+  }
+
+  /**
+   * @return The culler that finds the rooms seen through the doorways, or
+   *         null if portal culling is off
+   */
+  public PortalCuller getPortalCuller()
+  {
+    return this.portalCuller;
+  }
+
+  /**
+   * @return The fog of the level
+   */
+  public LevelFog getLevelFog()
+  {
+    return this.levelFog;
+  }
+
+  /**
+   * @return The chunks of merged floor, ceiling and wall meshes of the level
    */
-  public List<Box> getNotWalls()
+  public List<LevelMesher.Chunk> getLevelChunks()
   {
-    return this.notWalls;
+    return this.levelChunks;
   }
 
   public List<Box> getWalls() { return this.walls; }
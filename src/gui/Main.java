@@ -1,5 +1,12 @@
 package gui;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import entities.InputLog;
+import entities.ReplayFile;
+import game_engine.Attributes;
 import game_engine.Scenes;
 import javafx.application.Application;
 import javafx.scene.Scene;
@@ -25,6 +32,7 @@ public class Main extends Application
   @Override
   public void start(Stage primaryStage) throws Exception
   {
+    readRunOptions();
     gameStage = primaryStage;
     scenes = new Scenes(primaryStage, this);
 
@@ -40,6 +48,63 @@ public class Main extends Application
     primaryStage.setOnCloseRequest(e -> System.exit(0));
   }
   
+  /**
+   * Reads the named run options. --seed=N makes every game of this session
+   * use the game seed N, so a run can be reproduced exactly. --record=FILE
+   * writes the past selves of each game to FILE. --replay=FILE plays on the
+   * map FILE was recorded on, against its past selves. --record-inputs=FILE
+   * writes every input of the session to FILE, and --play-inputs=FILE plays
+   * a session written that way back turn by turn from the same seed.
+   */
+  private void readRunOptions()
+  {
+    Map<String, String> options = getParameters().getNamed();
+    String seed = options.get("seed");
+    if (seed != null)
+    {
+      try
+      {
+        Attributes.Game_Seed = Long.parseLong(seed);
+        Attributes.Fixed_Seed = true;
+      }
+      catch (NumberFormatException e)
+      {
+        System.out.println("Ignoring invalid seed: " + seed);
+      }
+    }
+    Attributes.Replay_Record_File = options.get("record");
+    String replay = options.get("replay");
+    if (replay != null)
+    {
+      try
+      {
+        // the map is made from the seed, so use the seed it was recorded with
+        Attributes.Game_Seed = ReplayFile.readSeed(Paths.get(replay));
+        Attributes.Fixed_Seed = true;
+        Attributes.Replay_Load_File = replay;
+      }
+      catch (IOException e)
+      {
+        System.out.println("Ignoring replay: " + e.getMessage());
+      }
+    }
+    Attributes.Input_Record_File = options.get("record-inputs");
+    String inputs = options.get("play-inputs");
+    if (inputs != null)
+    {
+      try
+      {
+        Attributes.Game_Seed = InputLog.read(Paths.get(inputs)).getSeed();
+        Attributes.Fixed_Seed = true;
+        Attributes.Input_Play_File = inputs;
+      }
+      catch (IOException e)
+      {
+        System.out.println("Ignoring input log: " + e.getMessage());
+      }
+    }
+  }
+
   /**
    * @param scene
    * 
@@ -1,7 +1,9 @@
 package levels;
 
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.SplittableRandom;
+
+import game_engine.GameRandom;
 /**
  * 
  * @author Ben Matthews
@@ -30,6 +32,7 @@ public class ProceduralMap
    * @return a newly generated level as a 2d array of Tile objects in rows x columns format
    */
   public static Tile[][] generateMap(int rows, int cols, int difficulty){
+    SplittableRandom random = GameRandom.stream(GameRandom.MAP);
     rows /= 4;
     cols /= 4;
     
@@ -43,12 +46,12 @@ public class ProceduralMap
       }
     }
     
-    ArrayList<ArrayList<Rectangle>> regions = generateRegions(basicMap);
+    ArrayList<ArrayList<Rectangle>> regions = generateRegions(basicMap, random);
     constructNeighbors(basicMap, regions);
-    generatePaths(regions);
+    generatePaths(regions, random);
     if (DEBUG) printCollsionCases(regions);
     resizeRectangles(regions);
-    fillMap(map, regions, difficulty);
+    fillMap(map, regions, difficulty, random);
     getBorderWallNeighborRegions(map);
     
     return map;
@@ -61,11 +64,11 @@ public class ProceduralMap
    * a collection of rooms and hallways within that region 
    * 
    * @param basicMap - a 2d map representing which rectangle is in which coordinate space
+   * @param random - the map generation stream
    * @return An Array of Rectangle collections where the first array represents the dimensions
    * of the proceeding regions
    */
-  private static ArrayList<ArrayList<Rectangle>> generateRegions(Rectangle[][] basicMap){
-    Random random = new Random();
+  private static ArrayList<ArrayList<Rectangle>> generateRegions(Rectangle[][] basicMap, SplittableRandom random){
     ArrayList<ArrayList<Rectangle>> regions = new ArrayList<>();
     
     /*
@@ -129,10 +132,10 @@ public class ProceduralMap
     regions.get(0).add(region3);
     regions.get(0).add(region4);
     
-    regions.add(getRectangles(basicMap, region1, 1));
-    regions.add(getRectangles(basicMap, region2, 2));
-    regions.add(getRectangles(basicMap, region3, 3));
-    regions.add(getRectangles(basicMap, region4, 4));
+    regions.add(getRectangles(basicMap, region1, 1, random));
+    regions.add(getRectangles(basicMap, region2, 2, random));
+    regions.add(getRectangles(basicMap, region3, 3, random));
+    regions.add(getRectangles(basicMap, region4, 4, random));
     
     if (DEBUG) printArray(basicMap);
     
@@ -147,12 +150,12 @@ public class ProceduralMap
    * @param basicMap - a map of rectangles to coordinates
    * @param bounds - the bounding rectangle of the region
    * @param region - an integer (1-4) representing the region
+   * @param random - the map generation stream
    * @return an arraylist of rectangles representing rooms in the given region
    */
-  private static ArrayList<Rectangle> getRectangles(Rectangle[][] basicMap, Rectangle bounds, int region){
+  private static ArrayList<Rectangle> getRectangles(Rectangle[][] basicMap, Rectangle bounds, int region, SplittableRandom random){
     ArrayList<Rectangle> rectangles = new ArrayList<>();
     ArrayList<Rectangle> splits = new ArrayList<>();
-    Random random = new Random();
     splits.add(new Rectangle(bounds.x, bounds.y, bounds.width, bounds.height)); //new rectangle to prevent pointer overlap
     
     while (!splits.isEmpty()){
@@ -332,10 +335,9 @@ public class ProceduralMap
    * generates all of the internal region paths
    * 
    * @param regions arrayLists contains arrayLists of rectangles
+   * @param random the map generation stream
    */
-  private static void generatePaths(ArrayList<ArrayList<Rectangle>> regions){
-    Random random = new Random();
-    
+  private static void generatePaths(ArrayList<ArrayList<Rectangle>> regions, SplittableRandom random){
     ArrayList<Rectangle> frontier = new ArrayList<>();
     ArrayList<Rectangle> visited = new ArrayList<>();
     ArrayList<Rectangle> border = new ArrayList<>();
@@ -431,8 +433,16 @@ public class ProceduralMap
     }
   }
   
-  private static void fillMap(Tile[][] map, ArrayList<ArrayList<Rectangle>> regions, int difficulty)
+  private static void fillMap(Tile[][] map, ArrayList<ArrayList<Rectangle>> regions, int difficulty, SplittableRandom random)
   {
+    //number the rooms and hallways so that the tiles and doorways can refer to them
+    int rooms = 0;
+    for (int i = 1; i < regions.size(); i++){
+      for (Rectangle r: regions.get(i)){
+        r.room = rooms++;
+      }
+    }
+
     for (int i = 1; i < regions.size(); i++){
       for (Rectangle r: regions.get(i)){
         for (int x = r.x; x < (r.x + r.width); x++){
@@ -445,12 +455,13 @@ public class ProceduralMap
               map[y+1][x+1].setRegion(r.region);
               if (x%2 == 1 && y%2 == 1 && r.isRoom){
                 double chance = (difficulty-.5)/7d;
-                if (Math.random() < chance){
+                if (random.nextDouble() < chance){
                   map[y+1][x+1] = new Tile(0,y+1,x+1, !r.isRoom); //create obstical
                   map[y+1][x+1].setRegion(r.region);
                   map[y+1][x+1].isObstacle = true;
                 }
               }
+              map[y+1][x+1].room = r.room;
             }
           }
         }
@@ -486,6 +497,8 @@ public class ProceduralMap
 
             map[y+1][path.x] = new Tile(r.region, y+1,path.x, !r.isRoom);
             map[y+1][path.x].setRegion(r.region);
+            setDoor(map[y][path.x], r, path);
+            setDoor(map[y+1][path.x], r, path);
           }
           if (path.y == r.y + r.height){//on bottom of r
             int x;
@@ -516,6 +529,8 @@ public class ProceduralMap
 
             map[path.y][x+1] = new Tile(r.region,path.y,x+1, !r.isRoom);
             map[path.y][x+1].setRegion(r.region);
+            setDoor(map[path.y][x], r, path);
+            setDoor(map[path.y][x+1], r, path);
           }
         }
       }
@@ -559,7 +574,6 @@ public class ProceduralMap
       }
     } 
     
-    Random random = new Random();
     Rectangle exit;
     boolean first = random.nextBoolean();
     
@@ -647,6 +661,14 @@ public class ProceduralMap
     }
   }
 
+  /**
+   * marks a tile as part of the doorway between two rooms
+   */
+  private static void setDoor(Tile tile, Rectangle from, Rectangle to){
+    tile.room = from.room;
+    tile.doorTo = to.room;
+  }
+
   /**
    * @author Hector Carrillo
    * finds the adjacent (neighboring) region to all walls
@@ -755,6 +777,7 @@ public class ProceduralMap
     private int width;
     private int height;
     private int region = 0;
+    private int room = -1; //index among all rooms and hallways, set when the map is filled
     private boolean isRoom = true;
     
     private ArrayList<Rectangle> neighbors = new ArrayList<>(); //represents adjacency
@@ -1,7 +1,5 @@
 package levels;
 
-import java.util.Random;
-
 /**
  * @author Jeffrey McCall 
  *         Atle Olson
@@ -46,8 +44,10 @@ public class Tile
   public boolean hasZombie = false;
   public boolean isWall = false;
   public boolean isObstacle = false;
-  private double zombieSpawn = 0.017;
-  private Random rand = new Random();
+  // the room or hallway the tile is open to, -1 for walls and the exit
+  public int room = -1;
+  // for a doorway tile, the room on the other side of the door, otherwise -1
+  public int doorTo = -1;
   public double movementCost = 1;
   public boolean wallNW = false;
   public boolean wallNE = false;
@@ -221,25 +221,6 @@ public class Tile
     return tileSize;
   }
 
-  /**
-   * Calculates the chance of this tile spawning a zombie.
-   * 
-   * @return True if a zombie will spawn on this tile. False otherwise.
-   */
-  public boolean spawnChance()
-  {
-    double randDouble;
-    if (!getType().equals("wall") && !hasZombie)
-    {
-      randDouble = rand.nextDouble();
-      if (randDouble >= 0 && randDouble < zombieSpawn)
-      {
-        return true;
-      }
-    }
-    return false;
-  }
-
   /**
    * Overrides equals for the tile object. Returns true if the row and col of
    * the given tile are equal to this tile. I based this method on some code I
@@ -0,0 +1,604 @@
+package utilities;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Makes the simpler levels of detail of an OBJ model. This is run by hand
+ * whenever a model in Resources/Meshes changes, and its output is kept next
+ * to the model:
+ *
+ * <pre>
+ * java utilities.MeshSimplifier Resources/Meshes/Zombie/Zombie?[02468].obj
+ * java utilities.MeshSimplifier Resources/Meshes/knight/knight1.obj
+ * </pre>
+ *
+ * Only the frames the game loads need them: the zombie animation is played
+ * from every other frame, so its odd frames are left out.
+ *
+ * For name.obj it writes name_lod1.obj with about half of the triangles and
+ * name_lod2.obj with about a quarter, which MeshLibrary loads with the model.
+ *
+ * The triangles are taken away by collapsing edges, cheapest first, where
+ * the cost of moving a point onto the other end of its edge is how far the
+ * point would end up from the planes of the triangles that were around it
+ * (the quadric error metric of Garland and Heckbert). Edges on the border of
+ * the model or on a seam of its texture count as walls across the edge, so
+ * that the outline and the texture hold their shape.
+ *
+ * All the files given on one run are taken as the frames of one animation.
+ * They have to have the same faces; the cost of a collapse is added up over
+ * every frame, and the same collapses are made in all of them, so the
+ * simpler frames can still be blended into each other.
+ */
+public class MeshSimplifier
+{
+  // the part of the triangles each level of detail keeps
+  private static final double[] LEVELS = {.5, .25};
+  // how much a border or texture seam is worth compared to the surface
+  private static final double SEAM_WEIGHT = 1000;
+  // a group of faces (an object or a material) keeps at least this many
+  private static final int MIN_GROUP_TRIANGLES = 4;
+
+  /**
+   * One OBJ file, with its faces cut into triangles.
+   */
+  private static class ObjFile
+  {
+    final String path;
+    // the v, vt and vn lines as they are in the file
+    final List<String> points = new ArrayList<>();
+    final List<String> texCoords = new ArrayList<>();
+    final List<String> normals = new ArrayList<>();
+    final List<double[]> positions = new ArrayList<>();
+    // every other line but comments, in order
+    final List<String> statements = new ArrayList<>();
+    // per triangle corner: the point, texture coordinate and normal, -1 if there is none
+    final List<int[]> triangles = new ArrayList<>();
+    // the number of statements before each triangle
+    final List<Integer> after = new ArrayList<>();
+
+    ObjFile(String path) throws IOException
+    {
+      this.path = path;
+      try (BufferedReader reader = new BufferedReader(new FileReader(path)))
+      {
+        String line;
+        while ((line = reader.readLine()) != null)
+        {
+          line = line.trim();
+          if (line.isEmpty() || line.startsWith("#")) continue;
+          String[] parts = line.split("\\s+");
+          switch (parts[0])
+          {
+            case "v":
+              points.add(line);
+              positions.add(new double[] {Double.parseDouble(parts[1]), Double.parseDouble(parts[2]),
+                  Double.parseDouble(parts[3])});
+              break;
+            case "vt":
+              texCoords.add(line);
+              break;
+            case "vn":
+              normals.add(line);
+              break;
+            case "f":
+              int[][] corners = new int[parts.length - 1][];
+              for (int i = 1; i < parts.length; i++)
+              {
+                corners[i - 1] = corner(parts[i]);
+              }
+              // a fan of triangles
+              for (int i = 2; i < corners.length; i++)
+              {
+                int[] triangle = new int[9];
+                System.arraycopy(corners[0], 0, triangle, 0, 3);
+                System.arraycopy(corners[i - 1], 0, triangle, 3, 3);
+                System.arraycopy(corners[i], 0, triangle, 6, 3);
+                triangles.add(triangle);
+                after.add(statements.size());
+              }
+              break;
+            default:
+              statements.add(line);
+          }
+        }
+      }
+    }
+
+    private int[] corner(String text)
+    {
+      String[] indices = text.split("/", -1);
+      int[] corner = {-1, -1, -1};
+      for (int i = 0; i < Math.min(3, indices.length); i++)
+      {
+        if (indices[i].isEmpty()) continue;
+        int index = Integer.parseInt(indices[i]);
+        int count = i == 0 ? points.size() : i == 1 ? texCoords.size() : normals.size();
+        corner[i] = index < 0 ? count + index : index - 1;
+      }
+      return corner;
+    }
+  }
+
+  /**
+   * A collapse of an edge, moving one point onto the other.
+   */
+  private static class Collapse implements Comparable<Collapse>
+  {
+    final double cost;
+    final int from;
+    final int to;
+    final int fromStamp;
+    final int toStamp;
+
+    Collapse(double cost, int from, int to, int fromStamp, int toStamp)
+    {
+      this.cost = cost;
+      this.from = from;
+      this.to = to;
+      this.fromStamp = fromStamp;
+      this.toStamp = toStamp;
+    }
+
+    @Override
+    public int compareTo(Collapse other)
+    {
+      return Double.compare(cost, other.cost);
+    }
+  }
+
+  private final ObjFile[] frames;
+  private final int[][] triangles;
+  private final boolean[] liveTriangle;
+  private int liveTriangles;
+  // the triangles around each point
+  private final List<Set<Integer>> pointTriangles = new ArrayList<>();
+  // [frame][point][10], the upper half of each 4x4 quadric
+  private final double[][][] quadrics;
+  private final boolean[] livePoint;
+  // bumped whenever a point changes, to spot collapses that are out of date
+  private final int[] stamps;
+  private final int[] groupOf;
+  private final int[] groupTriangles;
+  private final PriorityQueue<Collapse> collapses = new PriorityQueue<>();
+
+  private MeshSimplifier(ObjFile[] frames)
+  {
+    this.frames = frames;
+    ObjFile first = frames[0];
+    int pointCount = first.points.size();
+    triangles = first.triangles.toArray(new int[0][]);
+    liveTriangle = new boolean[triangles.length];
+    Arrays.fill(liveTriangle, true);
+    liveTriangles = triangles.length;
+    livePoint = new boolean[pointCount];
+    stamps = new int[pointCount];
+    quadrics = new double[frames.length][pointCount][10];
+    for (int i = 0; i < pointCount; i++)
+    {
+      pointTriangles.add(new HashSet<>());
+    }
+    groupOf = new int[triangles.length];
+    groupTriangles = new int[first.statements.size() + 1];
+    for (int t = 0; t < triangles.length; t++)
+    {
+      groupOf[t] = first.after.get(t);
+      groupTriangles[groupOf[t]]++;
+      for (int corner = 0; corner < 3; corner++)
+      {
+        int point = triangles[t][corner * 3];
+        pointTriangles.get(point).add(t);
+        livePoint[point] = true;
+      }
+    }
+    makeQuadrics();
+    for (int point = 0; point < pointCount; point++)
+    {
+      if (livePoint[point]) queueEdges(point);
+    }
+  }
+
+  /**
+   * Adds the plane of every triangle, and a wall along every border and
+   * seam, to the quadrics of their points.
+   */
+  private void makeQuadrics()
+  {
+    // the triangles on each edge, keyed by its points
+    Map<Long, List<Integer>> edges = new HashMap<>();
+    for (int t = 0; t < triangles.length; t++)
+    {
+      for (int corner = 0; corner < 3; corner++)
+      {
+        int a = triangles[t][corner * 3];
+        int b = triangles[t][(corner + 1) % 3 * 3];
+        edges.computeIfAbsent(edgeKey(a, b), key -> new ArrayList<>()).add(t);
+      }
+    }
+    for (int frame = 0; frame < frames.length; frame++)
+    {
+      List<double[]> positions = frames[frame].positions;
+      for (int t = 0; t < triangles.length; t++)
+      {
+        double[] normal = normal(positions, triangles[t][0], triangles[t][3], triangles[t][6]);
+        double area = length(normal);
+        if (area == 0) continue;
+        scale(normal, 1 / area);
+        double[] plane = plane(normal, positions.get(triangles[t][0]));
+        for (int corner = 0; corner < 3; corner++)
+        {
+          addPlane(quadrics[frame][triangles[t][corner * 3]], plane, area / 2);
+        }
+      }
+      for (Map.Entry<Long, List<Integer>> edge : edges.entrySet())
+      {
+        List<Integer> around = edge.getValue();
+        int a = (int) (edge.getKey() >> 32);
+        int b = (int) (long) edge.getKey();
+        if (around.size() == 2 && texCoordsMatch(around.get(0), around.get(1), a, b)) continue;
+        for (int t : around)
+        {
+          double[] normal = normal(positions, triangles[t][0], triangles[t][3], triangles[t][6]);
+          double[] pa = positions.get(a);
+          double[] pb = positions.get(b);
+          double[] along = {pb[0] - pa[0], pb[1] - pa[1], pb[2] - pa[2]};
+          double[] wall = cross(along, normal);
+          double wallLength = length(wall);
+          if (wallLength == 0) continue;
+          scale(wall, 1 / wallLength);
+          double[] plane = plane(wall, pa);
+          double weight = SEAM_WEIGHT * dot(along, along);
+          addPlane(quadrics[frame][a], plane, weight);
+          addPlane(quadrics[frame][b], plane, weight);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return true if two triangles sharing an edge give its points the same
+   *         texture coordinates.
+   */
+  private boolean texCoordsMatch(int first, int second, int a, int b)
+  {
+    return texCoordOf(first, a) == texCoordOf(second, a) && texCoordOf(first, b) == texCoordOf(second, b);
+  }
+
+  private int texCoordOf(int triangle, int point)
+  {
+    for (int corner = 0; corner < 3; corner++)
+    {
+      if (triangles[triangle][corner * 3] == point) return triangles[triangle][corner * 3 + 1];
+    }
+    return -1;
+  }
+
+  /**
+   * Queues the collapses of the edges around a point.
+   */
+  private void queueEdges(int point)
+  {
+    for (int neighbour : neighbours(point))
+    {
+      double toNeighbour = cost(point, neighbour);
+      double toPoint = cost(neighbour, point);
+      if (toNeighbour <= toPoint)
+      {
+        collapses.add(new Collapse(toNeighbour, point, neighbour, stamps[point], stamps[neighbour]));
+      }
+      else
+      {
+        collapses.add(new Collapse(toPoint, neighbour, point, stamps[neighbour], stamps[point]));
+      }
+    }
+  }
+
+  /**
+   * @return The error of moving a point onto another, over all frames.
+   */
+  private double cost(int from, int to)
+  {
+    double cost = 0;
+    for (int frame = 0; frame < frames.length; frame++)
+    {
+      double[] q = quadrics[frame][from];
+      double[] r = quadrics[frame][to];
+      double[] p = frames[frame].positions.get(to);
+      double x = p[0];
+      double y = p[1];
+      double z = p[2];
+      cost += (q[0] + r[0]) * x * x + 2 * (q[1] + r[1]) * x * y + 2 * (q[2] + r[2]) * x * z
+          + 2 * (q[3] + r[3]) * x + (q[4] + r[4]) * y * y + 2 * (q[5] + r[5]) * y * z
+          + 2 * (q[6] + r[6]) * y + (q[7] + r[7]) * z * z + 2 * (q[8] + r[8]) * z + (q[9] + r[9]);
+    }
+    return cost;
+  }
+
+  /**
+   * Collapses edges until no more than the given number of triangles are
+   * left, or no edge can be collapsed.
+   */
+  private void simplify(int targetTriangles)
+  {
+    while (liveTriangles > targetTriangles && !collapses.isEmpty())
+    {
+      Collapse collapse = collapses.poll();
+      int from = collapse.from;
+      int to = collapse.to;
+      if (!livePoint[from] || !livePoint[to] || stamps[from] != collapse.fromStamp
+          || stamps[to] != collapse.toStamp)
+      {
+        continue;
+      }
+      if (canCollapse(from, to))
+      {
+        collapse(from, to);
+      }
+    }
+  }
+
+  /**
+   * @return false if moving the point would fold a triangle over, pinch the
+   *         surface, or empty a group of faces.
+   */
+  private boolean canCollapse(int from, int to)
+  {
+    Set<Integer> shared = neighbours(from);
+    shared.retainAll(neighbours(to));
+    if (shared.size() > 2) return false;
+
+    Map<Integer, Integer> removed = new HashMap<>();
+    for (int t : pointTriangles.get(from))
+    {
+      if (pointTriangles.get(to).contains(t))
+      {
+        removed.merge(groupOf[t], 1, Integer::sum);
+        continue;
+      }
+      int[] corners = {triangles[t][0], triangles[t][3], triangles[t][6]};
+      for (int frame = 0; frame < frames.length; frame++)
+      {
+        List<double[]> positions = frames[frame].positions;
+        double[] before = normal(positions, corners[0], corners[1], corners[2]);
+        double[] after = normal(positions, corners[0] == from ? to : corners[0],
+            corners[1] == from ? to : corners[1], corners[2] == from ? to : corners[2]);
+        if (dot(before, after) <= 0) return false;
+      }
+    }
+    for (Map.Entry<Integer, Integer> group : removed.entrySet())
+    {
+      int left = groupTriangles[group.getKey()] - group.getValue();
+      if (left < MIN_GROUP_TRIANGLES) return false;
+    }
+    return true;
+  }
+
+  private void collapse(int from, int to)
+  {
+    for (int t : new ArrayList<>(pointTriangles.get(from)))
+    {
+      if (pointTriangles.get(to).contains(t))
+      {
+        liveTriangle[t] = false;
+        liveTriangles--;
+        groupTriangles[groupOf[t]]--;
+        for (int corner = 0; corner < 3; corner++)
+        {
+          pointTriangles.get(triangles[t][corner * 3]).remove(t);
+        }
+      }
+      else
+      {
+        for (int corner = 0; corner < 3; corner++)
+        {
+          if (triangles[t][corner * 3] == from) triangles[t][corner * 3] = to;
+        }
+        pointTriangles.get(to).add(t);
+      }
+    }
+    pointTriangles.get(from).clear();
+    livePoint[from] = false;
+    for (int frame = 0; frame < frames.length; frame++)
+    {
+      for (int i = 0; i < 10; i++)
+      {
+        quadrics[frame][to][i] += quadrics[frame][from][i];
+      }
+    }
+    stamps[to]++;
+    queueEdges(to);
+  }
+
+  private Set<Integer> neighbours(int point)
+  {
+    Set<Integer> neighbours = new HashSet<>();
+    for (int t : pointTriangles.get(point))
+    {
+      for (int corner = 0; corner < 3; corner++)
+      {
+        neighbours.add(triangles[t][corner * 3]);
+      }
+    }
+    neighbours.remove(point);
+    return neighbours;
+  }
+
+  /**
+   * Writes the triangles that are left into every frame's file of a level
+   * of detail. Only the points, texture coordinates and normals still used
+   * are written.
+   */
+  private void write(int level) throws IOException
+  {
+    for (ObjFile frame : frames)
+    {
+      int[][] used = {new int[frame.points.size()], new int[frame.texCoords.size()], new int[frame.normals.size()]};
+      for (int[] indices : used)
+      {
+        Arrays.fill(indices, -1);
+      }
+      int[] counts = new int[3];
+      for (int t = 0; t < triangles.length; t++)
+      {
+        if (!liveTriangle[t]) continue;
+        for (int i = 0; i < 9; i++)
+        {
+          int index = triangles[t][i];
+          if (index >= 0 && used[i % 3][index] < 0) used[i % 3][index] = counts[i % 3]++;
+        }
+      }
+
+      String lodPath = frame.path.substring(0, frame.path.length() - ".obj".length()) + "_lod" + level + ".obj";
+      try (PrintWriter out = new PrintWriter(lodPath))
+      {
+        String name = frame.path.substring(frame.path.lastIndexOf('/') + 1);
+        out.println("# Level of detail " + level + " of " + name + ", made by MeshSimplifier");
+        List<List<String>> lines = Arrays.asList(frame.points, frame.texCoords, frame.normals);
+        for (int kind = 0; kind < 3; kind++)
+        {
+          // written in their old order, which is the order of their new indices
+          String[] written = new String[counts[kind]];
+          for (int i = 0; i < used[kind].length; i++)
+          {
+            if (used[kind][i] >= 0) written[used[kind][i]] = lines.get(kind).get(i);
+          }
+          for (String line : written)
+          {
+            out.println(line);
+          }
+        }
+        for (int statement = 0; statement <= frame.statements.size(); statement++)
+        {
+          if (statement > 0) out.println(frame.statements.get(statement - 1));
+          for (int t = 0; t < triangles.length; t++)
+          {
+            if (!liveTriangle[t] || groupOf[t] != statement) continue;
+            StringBuilder face = new StringBuilder("f");
+            for (int corner = 0; corner < 3; corner++)
+            {
+              face.append(' ').append(used[0][triangles[t][corner * 3]] + 1);
+              int texCoord = triangles[t][corner * 3 + 1];
+              int normal = triangles[t][corner * 3 + 2];
+              if (texCoord >= 0 || normal >= 0) face.append('/');
+              if (texCoord >= 0) face.append(used[1][texCoord] + 1);
+              if (normal >= 0) face.append('/').append(used[2][normal] + 1);
+            }
+            out.println(face);
+          }
+        }
+      }
+      System.out.println(lodPath + ": " + liveTriangles + " triangles");
+    }
+  }
+
+  private static long edgeKey(int a, int b)
+  {
+    return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+  }
+
+  private static double[] normal(List<double[]> positions, int a, int b, int c)
+  {
+    double[] pa = positions.get(a);
+    double[] pb = positions.get(b);
+    double[] pc = positions.get(c);
+    return cross(new double[] {pb[0] - pa[0], pb[1] - pa[1], pb[2] - pa[2]},
+        new double[] {pc[0] - pa[0], pc[1] - pa[1], pc[2] - pa[2]});
+  }
+
+  private static double[] plane(double[] unitNormal, double[] point)
+  {
+    return new double[] {unitNormal[0], unitNormal[1], unitNormal[2], -dot(unitNormal, point)};
+  }
+
+  private static void addPlane(double[] q, double[] p, double weight)
+  {
+    q[0] += weight * p[0] * p[0];
+    q[1] += weight * p[0] * p[1];
+    q[2] += weight * p[0] * p[2];
+    q[3] += weight * p[0] * p[3];
+    q[4] += weight * p[1] * p[1];
+    q[5] += weight * p[1] * p[2];
+    q[6] += weight * p[1] * p[3];
+    q[7] += weight * p[2] * p[2];
+    q[8] += weight * p[2] * p[3];
+    q[9] += weight * p[3] * p[3];
+  }
+
+  private static double[] cross(double[] a, double[] b)
+  {
+    return new double[] {a[1] * b[2] - a[2] * b[1], a[2] * b[0] - a[0] * b[2], a[0] * b[1] - a[1] * b[0]};
+  }
+
+  private static double dot(double[] a, double[] b)
+  {
+    return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+  }
+
+  private static double length(double[] a)
+  {
+    return Math.sqrt(dot(a, a));
+  }
+
+  private static void scale(double[] a, double by)
+  {
+    a[0] *= by;
+    a[1] *= by;
+    a[2] *= by;
+  }
+
+  /**
+   * @param args
+   *          The OBJ files of one model, or of the frames of one animation.
+   *          Files that are already levels of detail are skipped.
+   */
+  public static void main(String[] args) throws IOException
+  {
+    List<ObjFile> frames = new ArrayList<>();
+    for (String path : args)
+    {
+      if (path.contains("_lod")) continue;
+      frames.add(new ObjFile(path));
+    }
+    if (frames.isEmpty())
+    {
+      System.out.println("usage: java utilities.MeshSimplifier model.obj... (the frames of one animation)");
+      return;
+    }
+    ObjFile first = frames.get(0);
+    for (ObjFile frame : frames)
+    {
+      if (frame.points.size() != first.points.size() || frame.triangles.size() != first.triangles.size()
+          || frame.statements.size() != first.statements.size())
+      {
+        throw new IOException(frame.path + " doesn't have the faces of " + first.path);
+      }
+      for (int t = 0; t < first.triangles.size(); t++)
+      {
+        if (!Arrays.equals(frame.triangles.get(t), first.triangles.get(t))
+            || !frame.after.get(t).equals(first.after.get(t)))
+        {
+          throw new IOException(frame.path + " doesn't have the faces of " + first.path);
+        }
+      }
+    }
+
+    MeshSimplifier simplifier = new MeshSimplifier(frames.toArray(new ObjFile[0]));
+    int triangles = first.triangles.size();
+    for (int level = 0; level < LEVELS.length; level++)
+    {
+      simplifier.simplify((int) Math.round(triangles * LEVELS[level]));
+      simplifier.write(level + 1);
+    }
+  }
+}
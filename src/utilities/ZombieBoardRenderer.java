@@ -409,8 +409,11 @@ public class ZombieBoardRenderer
    */
   private class MainGameLoop extends AnimationTimer
   {
+    int tick = 0;
+
     public void handle(long now)
     {
+      entityManager.updateDecisions(++tick);
       // When starting up the game, start the zombies moving.
       if (initZombieMovement)
       {
@@ -430,12 +433,8 @@ public class ZombieBoardRenderer
       for (Zombie zombie : entityManager.zombies)
       {
         zombie.tick2d();
-        if (zombie.goingAfterPlayer.get()
-             && !zombie.isMasterZombie)
-        {
-          entityManager.startMasterZombie();
-        }
       }
+      entityManager.events.dispatch();
       if (!isPaused)
       {
         drawGameBoard();